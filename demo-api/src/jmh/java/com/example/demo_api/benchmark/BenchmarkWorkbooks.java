@@ -0,0 +1,60 @@
+package com.example.demo_api.benchmark;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// 產生指定列數、欄數與工作表數的測試 Excel：第一行為標題，字串欄與數值欄交錯，
+// 使用 shared strings table 與 demo-excel 以 XSSFWorkbook 產生的檔案結構一致
+final class BenchmarkWorkbooks {
+
+    private BenchmarkWorkbooks() {
+    }
+
+    // rows 平均分配到 sheets 個工作表，總列數不變，用來比較逐一與平行解析工作表；
+    // deflateLevel 為輸出 zip 的壓縮等級（0 = 只存不壓縮，-1 = 預設），比較不同壓縮方式的解壓成本
+    static byte[] create(int rows, int columns, int sheets, int deflateLevel) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(null, 100, true, true) {
+            @Override
+            protected ZipArchiveOutputStream createArchiveOutputStream(OutputStream out) {
+                ZipArchiveOutputStream zipOutputStream = super.createArchiveOutputStream(out);
+                zipOutputStream.setLevel(deflateLevel);
+                return zipOutputStream;
+            }
+        };
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            for (int s = 0; s < sheets; s++) {
+                Sheet sheet = workbook.createSheet(sheets == 1 ? "員工資料" : "員工資料" + (s + 1));
+
+                Row headerRow = sheet.createRow(0);
+                for (int j = 0; j < columns; j++) {
+                    headerRow.createCell(j).setCellValue("欄位" + (j + 1));
+                }
+
+                int sheetRows = rows / sheets + (s < rows % sheets ? 1 : 0);
+                for (int i = 1; i <= sheetRows; i++) {
+                    Row row = sheet.createRow(i);
+                    for (int j = 0; j < columns; j++) {
+                        if (j % 2 == 0) {
+                            // 重複度高的字串，接近部門、狀態等實際欄位
+                            row.createCell(j).setCellValue("值" + (i % 100) + "-" + j);
+                        } else {
+                            row.createCell(j).setCellValue(i * 31L + j);
+                        }
+                    }
+                }
+            }
+
+            workbook.write(outputStream);
+            return outputStream.toByteArray();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+}
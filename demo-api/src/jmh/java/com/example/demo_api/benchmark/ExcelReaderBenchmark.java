@@ -0,0 +1,91 @@
+package com.example.demo_api.benchmark;
+
+import com.example.demo_api.service.ExcelMetrics;
+import com.example.demo_api.service.ExcelPayload;
+import com.example.demo_api.service.ExcelReaderService;
+import com.example.demo_api.service.ParsedResultCache;
+import com.example.demo_api.service.SheetParsePool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+// ExcelReaderService 讀取熱點：DOM / SAX / 平行 SAX 三種引擎與結構分析（完整 / 只讀 metadata），
+// 以 -prof gc 觀察每次操作的配置量（gc.alloc.rate.norm）
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ExcelReaderBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int rows;
+
+    @Param({"6", "24"})
+    private int columns;
+
+    // 總列數平均分配到各工作表
+    @Param({"1", "20"})
+    private int sheets;
+
+    // 輸入檔的 zip 壓縮方式（同 demo-excel 的 compression），以 -p compression=store,fast,default,best 比較解壓成本
+    @Param({"default"})
+    private String compression;
+
+    private SheetParsePool sheetParsePool;
+    private ExcelReaderService excelReaderService;
+    private byte[] excelBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // 停用解析結果快取，每次都量測實際的 POI 解析
+        ParsedResultCache parsedResultCache = new ParsedResultCache(meterRegistry, false, 0, Duration.ZERO);
+        sheetParsePool = new SheetParsePool(meterRegistry, 0, 4, 64);
+        excelReaderService = new ExcelReaderService(new ExcelMetrics(meterRegistry), parsedResultCache, sheetParsePool);
+        excelBytes = BenchmarkWorkbooks.create(rows, columns, sheets, deflateLevel(compression));
+    }
+
+    private static int deflateLevel(String compression) {
+        return switch (compression) {
+            case "store" -> Deflater.NO_COMPRESSION;
+            case "fast" -> Deflater.BEST_SPEED;
+            case "best" -> Deflater.BEST_COMPRESSION;
+            default -> Deflater.DEFAULT_COMPRESSION;
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sheetParsePool.shutdown();
+    }
+
+    // 讀取引擎只套用在 readExcelData，analyzeExcelStructure 不重複量測
+    @State(Scope.Benchmark)
+    public static class EngineState {
+
+        @Param({ExcelReaderService.ENGINE_DOM, ExcelReaderService.ENGINE_SAX, ExcelReaderService.ENGINE_PARALLEL})
+        private String engine;
+    }
+
+    @Benchmark
+    public Map<String, Object> readExcelData(EngineState state) {
+        return excelReaderService.readExcelData(excelBytes, state.engine);
+    }
+
+    @Benchmark
+    public Map<String, Object> analyzeExcelStructure() {
+        return excelReaderService.analyzeExcelStructure(excelBytes);
+    }
+
+    @Benchmark
+    public Map<String, Object> analyzeExcelMetadata() {
+        return excelReaderService.analyzeExcelMetadata(ExcelPayload.of(excelBytes));
+    }
+}
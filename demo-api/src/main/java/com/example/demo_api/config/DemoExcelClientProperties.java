@@ -0,0 +1,162 @@
+package com.example.demo_api.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// 呼叫 demo-excel 的連線設定，對應 application.properties 的 demo-excel.client.*
+@ConfigurationProperties(prefix = "demo-excel.client")
+public class DemoExcelClientProperties {
+
+    // demo-excel 服務位址
+    private String baseUrl = "http://demo-excel-dev:8080";
+
+    // 建立 TCP 連線的逾時
+    private Duration connectTimeout = Duration.ofSeconds(30);
+
+    // 等待回應資料的逾時
+    private Duration readTimeout = Duration.ofSeconds(60);
+
+    // 連線池總連線數上限
+    private int maxConnectionsTotal = 100;
+
+    // 對同一個 route（demo-excel）的連線數上限
+    private int maxConnectionsPerRoute = 50;
+
+    // 閒置超過此時間的連線會被背景執行緒關閉
+    private Duration idleEviction = Duration.ofSeconds(30);
+
+    // 非同步 client（/async）的並行上限與等待佇列
+    private final Async async = new Async();
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public Duration getIdleEviction() {
+        return idleEviction;
+    }
+
+    public void setIdleEviction(Duration idleEviction) {
+        this.idleEviction = idleEviction;
+    }
+
+    public Async getAsync() {
+        return async;
+    }
+
+    // demo-excel.client.async.*：AIMD 並行上限，上限已滿時進入有界佇列，佇列滿或等待逾時回傳 503
+    public static class Async {
+
+        // 啟動時的並行上限
+        private int initialLimit = 20;
+
+        private int minLimit = 2;
+
+        private int maxLimit = 100;
+
+        // 逾時、5xx 或回應過慢時上限乘上此比例
+        private double backoffRatio = 0.9;
+
+        // 回應超過此時間視為下游過載
+        private Duration latencyThreshold = Duration.ofSeconds(10);
+
+        // 等待佇列容量，0 表示上限已滿時直接拒絕
+        private int queueCapacity = 50;
+
+        // 在佇列中等待超過此時間即拒絕
+        private Duration queueTimeout = Duration.ofSeconds(2);
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+
+        public Duration getLatencyThreshold() {
+            return latencyThreshold;
+        }
+
+        public void setLatencyThreshold(Duration latencyThreshold) {
+            this.latencyThreshold = latencyThreshold;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getQueueTimeout() {
+            return queueTimeout;
+        }
+
+        public void setQueueTimeout(Duration queueTimeout) {
+            this.queueTimeout = queueTimeout;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.demo_api.config;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// 共用的 demo-excel HTTP 連線池：keep-alive 重用 TCP 連線，避免每次請求重新握手
+@Configuration
+@EnableConfigurationProperties(DemoExcelClientProperties.class)
+public class HttpClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager demoExcelConnectionManager(DemoExcelClientProperties properties) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnectionsTotal())
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(properties.getReadTimeout()))
+                        .build())
+                .build();
+    }
+
+    // 連線池使用量（httpcomponents.httpclient.pool.*），判斷請求是否在等待可用連線；
+    // MeterBinder bean 由 Actuator 自動綁定到 MeterRegistry
+    @Bean
+    public PoolingHttpClientConnectionManagerMetricsBinder demoExcelConnectionPoolMetrics(
+            PoolingHttpClientConnectionManager demoExcelConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(demoExcelConnectionManager, "demo-excel");
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient demoExcelHttpClient(PoolingHttpClientConnectionManager demoExcelConnectionManager,
+                                                   DemoExcelClientProperties properties) {
+        return HttpClients.custom()
+                .setConnectionManager(demoExcelConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.of(properties.getReadTimeout()))
+                        .build())
+                // 背景清除過期與閒置連線，避免拿到已被對方關閉的連線
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(properties.getIdleEviction()))
+                .build();
+    }
+}
@@ -1,14 +1,21 @@
 package com.example.demo_api.config;
 
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class RestTemplateConfig {
     
+    // 使用共用連線池，RestTemplate 的每次呼叫都會重用既有的 keep-alive 連線；
+    // 透過 RestTemplateBuilder 建立，才會套用 Actuator 的 http.client.requests 指標
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder, CloseableHttpClient demoExcelHttpClient) {
+        return restTemplateBuilder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(demoExcelHttpClient))
+                .build();
     }
-}
\ No newline at end of file
+}
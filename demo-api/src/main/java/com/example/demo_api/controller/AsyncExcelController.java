@@ -0,0 +1,320 @@
+package com.example.demo_api.controller;
+
+import com.example.demo_api.service.AdaptiveConcurrencyLimiter;
+import com.example.demo_api.service.DemoExcelAsyncClient;
+import com.example.demo_api.service.DownstreamSaturatedException;
+import com.example.demo_api.service.ExcelPayload;
+import com.example.demo_api.service.ExcelReadOptions;
+import com.example.demo_api.service.ExcelReaderService;
+import com.example.demo_api.service.SheetParsePool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 非同步版本：回傳 CompletableFuture，等待 demo-excel 期間釋放 Tomcat 執行緒；
+// demo-excel 過載時由 DemoExcelAsyncClient 的並行上限擋下，直接回應 503，不讓請求堆積在 demo-api
+@RestController
+@RequestMapping("/async")
+public class AsyncExcelController {
+
+    // 拒絕時建議用戶端重試的間隔（秒）
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    // batch-read 整體期限的上限（毫秒），需小於 spring.mvc.async.request-timeout
+    private static final long MAX_BATCH_TIMEOUT_MILLIS = 60_000;
+
+    private final ExcelReaderService excelReaderService;
+    private final DemoExcelAsyncClient demoExcelAsyncClient;
+    private final AsyncTaskExecutor parseExecutor;
+    private final SheetParsePool sheetParsePool;
+    private final ObjectMapper objectMapper;
+
+    // 解析在 Spring Boot 的 applicationTaskExecutor 執行，不佔用 HttpClient 的回呼執行緒；
+    // batch-read 的回應本身在 applicationTaskExecutor 等待結果，其解析改在有界的 SheetParsePool 執行
+    @Autowired
+    public AsyncExcelController(ExcelReaderService excelReaderService, DemoExcelAsyncClient demoExcelAsyncClient,
+                                @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                                AsyncTaskExecutor parseExecutor, SheetParsePool sheetParsePool, ObjectMapper objectMapper) {
+        this.excelReaderService = excelReaderService;
+        this.demoExcelAsyncClient = demoExcelAsyncClient;
+        this.parseExecutor = parseExecutor;
+        this.sheetParsePool = sheetParsePool;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping("/request-stream-and-read")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> requestStreamAndReadExcel(
+            @RequestParam(defaultValue = "sample") String type,
+            @RequestParam(defaultValue = ExcelReaderService.ENGINE_AUTO) String engine,
+            ExcelReadOptions options) {
+        return demoExcelAsyncClient.download("/excel/generate-stream?type=" + type, "generate-stream")
+                .thenApplyAsync(payload -> ResponseEntity.ok(readPayload(payload, type, engine, options)), parseExecutor)
+                .exceptionally(e -> errorResponse(type, e));
+    }
+
+    // 一次取得多個報表：各 type 同時向 demo-excel 下載（共用 DemoExcelAsyncClient 的連線池與並行上限）並平行解析，
+    // 依完成順序逐行輸出 NDJSON（metadata / report / summary），總耗時約為最慢的一份而不是全部相加；
+    // 超過 timeout（毫秒）仍未完成的報表回報 status=timeout 並取消其下載，其餘報表的結果照常輸出
+    @GetMapping("/batch-read")
+    public ResponseEntity<StreamingResponseBody> batchRead(@RequestParam List<String> types,
+                                                           @RequestParam(defaultValue = ExcelReaderService.ENGINE_AUTO) String engine,
+                                                           @RequestParam(defaultValue = "30000") long timeout,
+                                                           ExcelReadOptions options) {
+        List<String> excelTypes = new ArrayList<>(new LinkedHashSet<>(types));
+        long timeoutMillis = Math.max(1, Math.min(timeout, MAX_BATCH_TIMEOUT_MILLIS));
+
+        StreamingResponseBody stream = outputStream -> {
+            long startNanos = System.nanoTime();
+            long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            // 期限已過時，之後才下載完成的檔案不再解析，直接刪除暫存內容
+            AtomicBoolean expired = new AtomicBoolean();
+            BlockingQueue<BatchResult> completed = new LinkedBlockingQueue<>();
+            Set<String> pending = new LinkedHashSet<>(excelTypes);
+            List<CompletableFuture<ExcelPayload>> downloads = new ArrayList<>();
+            for (String type : excelTypes) {
+                CompletableFuture<ExcelPayload> download =
+                        demoExcelAsyncClient.download("/excel/generate-stream?type=" + type, "generate-stream");
+                downloads.add(download);
+                download.whenComplete((payload, error) -> {
+                    if (error != null) {
+                        completed.add(new BatchResult(type, null, error, elapsedMillis(startNanos)));
+                    } else {
+                        submitBatchParse(type, payload, engine, options, expired, completed, startNanos);
+                    }
+                });
+            }
+
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            // 由容器負責關閉回應串流；每個物件之間以換行分隔
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            metadata.put("type", "metadata");
+            metadata.put("service", "demo-api");
+            metadata.put("http_client", "java.net.http.HttpClient");
+            metadata.put("operation", "batch_read_excel");
+            metadata.put("timestamp", LocalDateTime.now());
+            metadata.put("excel_types", excelTypes);
+            metadata.put("source_service", "demo-excel");
+            metadata.put("source_endpoint", "/excel/generate-stream");
+            metadata.put("timeout_ms", timeoutMillis);
+            writeLine(generator, metadata);
+
+            int succeeded = 0;
+            int failed = 0;
+            try {
+                while (!pending.isEmpty()) {
+                    long remainingNanos = deadlineNanos - System.nanoTime();
+                    BatchResult result = remainingNanos > 0 ? completed.poll(remainingNanos, TimeUnit.NANOSECONDS) : null;
+                    if (result == null) {
+                        break;
+                    }
+                    pending.remove(result.type());
+                    if (result.error() == null) {
+                        succeeded++;
+                    } else {
+                        failed++;
+                    }
+                    writeLine(generator, reportLine(result));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // 客戶端中斷連線時同樣停止後續解析，並中止還在進行的下載
+                expired.set(true);
+                downloads.forEach(download -> download.cancel(true));
+            }
+
+            // 期限內未完成的報表
+            for (String type : pending) {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("type", "report");
+                line.put("excel_type", type);
+                line.put("status", "timeout");
+                line.put("elapsed_ms", elapsedMillis(startNanos));
+                writeLine(generator, line);
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("type", "summary");
+            summary.put("total", excelTypes.size());
+            summary.put("succeeded", succeeded);
+            summary.put("failed", failed);
+            summary.put("timed_out", pending.size());
+            summary.put("elapsed_ms", elapsedMillis(startNanos));
+            summary.put("status", pending.isEmpty() && failed == 0 ? "completed" : "partial");
+            writeLine(generator, summary);
+            generator.close();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(stream);
+    }
+
+    private Map<String, Object> readPayload(ExcelPayload payload, String type, String engine, ExcelReadOptions options) {
+        try (payload) {
+            Map<String, Object> readResult = excelReaderService.readExcelData(payload, engine, options);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("service", "demo-api");
+            result.put("http_client", "java.net.http.HttpClient");
+            result.put("operation", "request_stream_and_read_excel");
+            result.put("timestamp", LocalDateTime.now());
+            result.put("excel_type", type);
+            result.put("source_service", "demo-excel");
+            result.put("source_endpoint", "/excel/generate-stream");
+            result.put("optimization", "sendAsync + adaptive concurrency limit");
+            result.put("file_size", payload.size());
+            result.put("file_size_mb", String.format("%.2f MB", payload.size() / 1024.0 / 1024.0));
+            result.put("spooled_to_disk", payload.isSpilled());
+            result.put("download_status", "success");
+            result.put("read_result", readResult);
+            result.put("concurrency_limit", demoExcelAsyncClient.getLimiter().getLimit());
+            result.put("status", "completed");
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 下載完成的檔案交給 SheetParsePool 解析，結果放入 completed；佇列已滿時刪除內容，該報表回報為錯誤
+    private void submitBatchParse(String type, ExcelPayload payload, String engine, ExcelReadOptions options,
+                                  AtomicBoolean expired, BlockingQueue<BatchResult> completed, long startNanos) {
+        try {
+            sheetParsePool.execute(() -> {
+                Map<String, Object> report = null;
+                Throwable error = null;
+                try {
+                    report = readBatchPayload(payload, engine, options, expired);
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+                completed.add(new BatchResult(type, report, error, elapsedMillis(startNanos)));
+            });
+        } catch (RejectedExecutionException e) {
+            try {
+                payload.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            completed.add(new BatchResult(type, null, e, elapsedMillis(startNanos)));
+        }
+    }
+
+    private Map<String, Object> readBatchPayload(ExcelPayload payload, String engine, ExcelReadOptions options,
+                                                 AtomicBoolean expired) {
+        try (payload) {
+            if (expired.get()) {
+                throw new CancellationException("Batch deadline exceeded");
+            }
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("file_size", payload.size());
+            report.put("spooled_to_disk", payload.isSpilled());
+            report.put("read_result", excelReaderService.readExcelData(payload, engine, options));
+            return report;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, Object> reportLine(BatchResult result) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", "report");
+        line.put("excel_type", result.type());
+        line.put("elapsed_ms", result.elapsedMillis());
+        if (result.error() == null) {
+            line.putAll(result.report());
+            line.put("status", "completed");
+            return line;
+        }
+        Throwable cause = result.error() instanceof CompletionException && result.error().getCause() != null
+                ? result.error().getCause() : result.error();
+        line.put("error_type", cause.getClass().getSimpleName());
+        line.put("error", cause.getMessage());
+        if (cause instanceof DownstreamSaturatedException saturated) {
+            line.put("reject_reason", saturated.getReason());
+            line.put("status", "rejected");
+        } else {
+            line.put("status", "error");
+        }
+        return line;
+    }
+
+    // ndjson：一個物件一行，寫完立即 flush，客戶端可以先處理已完成的報表
+    private void writeLine(JsonGenerator generator, Map<String, Object> line) throws IOException {
+        generator.writeObject(line);
+        generator.writeRaw('\n');
+        generator.flush();
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private ResponseEntity<Map<String, Object>> errorResponse(String type, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+
+        Map<String, Object> error = new HashMap<>();
+        error.put("service", "demo-api");
+        error.put("http_client", "java.net.http.HttpClient");
+        error.put("operation", "request_stream_and_read_excel");
+        error.put("timestamp", LocalDateTime.now());
+        error.put("excel_type", type);
+        error.put("source_service", "demo-excel");
+        error.put("source_endpoint", "/excel/generate-stream");
+        error.put("error_type", cause.getClass().getSimpleName());
+        error.put("error", cause.getMessage());
+
+        if (cause instanceof DownstreamSaturatedException saturated) {
+            // 並行上限與等待佇列已滿：請求未送出，快速回應 503
+            AdaptiveConcurrencyLimiter limiter = demoExcelAsyncClient.getLimiter();
+            error.put("reject_reason", saturated.getReason());
+            error.put("concurrency_limit", limiter.getLimit());
+            error.put("in_flight", limiter.getInFlight());
+            error.put("queued", limiter.getQueued());
+            error.put("status", "rejected");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .body(error);
+        }
+
+        error.put("status", "error");
+        return ResponseEntity.ok(error);
+    }
+
+    // 單一報表的結果，report 與 error 只有一個非 null
+    private record BatchResult(String type, Map<String, Object> report, Throwable error, long elapsedMillis) {
+    }
+}
@@ -20,11 +20,16 @@ public class HomeController {
             "resttemplate", Map.of(
                 "request-and-read", "/resttemplate/request-and-read?type=sample",
                 "request-resource-and-read", "/resttemplate/request-resource-and-read?type=sample",
-                "request-stream-and-read", "/resttemplate/request-stream-and-read?type=sample"
+                "request-stream-and-read", "/resttemplate/request-stream-and-read?type=sample",
+                "request-and-stream-rows", "/resttemplate/request-and-stream-rows?type=sample&format=ndjson"
             ),
             "urlconnection", Map.of(
                 "request-stream-and-read", "/urlconnection/request-stream-and-read?type=sample",
                 "generate-and-read-sample", "/urlconnection/generate-and-read-sample"
+            ),
+            "async", Map.of(
+                "request-stream-and-read", "/async/request-stream-and-read?type=sample",
+                "batch-read", "/async/batch-read?types=sample,report"
             )
         ));
         return response;
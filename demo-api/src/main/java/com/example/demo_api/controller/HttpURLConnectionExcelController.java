@@ -1,47 +1,86 @@
 package com.example.demo_api.controller;
 
+import com.example.demo_api.config.DemoExcelClientProperties;
+import com.example.demo_api.service.ExcelMetrics;
+import com.example.demo_api.service.ExcelPayload;
+import com.example.demo_api.service.ExcelReadOptions;
 import com.example.demo_api.service.ExcelReaderService;
+import com.example.demo_api.service.MultipartUpload;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.Deflater;
 
 @RestController
 @RequestMapping("/urlconnection")
 public class HttpURLConnectionExcelController {
     
+    // 本地建立模板時的標題列
+    private static final String[] TEMPLATE_HEADERS = {"ID", "姓名", "部門", "薪資", "入職日期", "狀態"};
+    
+    // 模板上傳方式
+    private static final String UPLOAD_FILE = "file";
+    private static final String UPLOAD_STREAM = "stream";
+    
     private final ExcelReaderService excelReaderService;
-    private static final String DEMO_EXCEL_URL = "http://demo-excel-dev:8080";
+    private final ExcelMetrics excelMetrics;
+    private final String demoExcelUrl;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    // 只有標題列的模板內容固定，啟動時產生一次，upload=file 每次請求直接輸出相同的位元組
+    private final byte[] emptyExcelWithHeaders;
+    // upload=stream 每次請求重新產生模板時使用的壓縮等級
+    private final int templateDeflateLevel;
     
     @Autowired
-    public HttpURLConnectionExcelController(ExcelReaderService excelReaderService) {
+    public HttpURLConnectionExcelController(ExcelReaderService excelReaderService, ExcelMetrics excelMetrics,
+                                            DemoExcelClientProperties clientProperties,
+                                            @Value("${excel.template.compression:default}") String templateCompression) throws IOException {
         this.excelReaderService = excelReaderService;
+        this.excelMetrics = excelMetrics;
+        this.demoExcelUrl = clientProperties.getBaseUrl();
+        this.connectTimeoutMillis = (int) clientProperties.getConnectTimeout().toMillis();
+        this.readTimeoutMillis = (int) clientProperties.getReadTimeout().toMillis();
+        this.templateDeflateLevel = templateDeflateLevel(templateCompression);
+        // excel.template.create 只在啟動時記錄一次
+        Timer.Sample templateSample = excelMetrics.start();
+        this.emptyExcelWithHeaders = createEmptyExcelWithHeaders(templateDeflateLevel);
+        excelMetrics.recordTemplateCreate(templateSample, TEMPLATE_HEADERS.length);
     }
     
     @GetMapping("/request-stream-and-read")
-    public Map<String, Object> requestStreamAndReadExcel(@RequestParam(defaultValue = "sample") String type) {
+    public Map<String, Object> requestStreamAndReadExcel(@RequestParam(defaultValue = "sample") String type,
+                                                         @RequestParam(defaultValue = ExcelReaderService.ENGINE_AUTO) String engine,
+                                                         ExcelReadOptions options) {
         HttpURLConnection connection = null;
+        boolean responseConsumed = false;
+        Timer.Sample transferSample = excelMetrics.start();
         try {
             // 1. 建立 HttpURLConnection 連接到 demo-excel
-            String downloadUrl = DEMO_EXCEL_URL + "/excel/generate-stream?type=" + type;
+            String downloadUrl = demoExcelUrl + "/excel/generate-stream?type=" + type;
             URL url = new URL(downloadUrl);
             connection = (HttpURLConnection) url.openConnection();
             
             // 2. 設定請求參數
             connection.setRequestMethod("GET");
             connection.setRequestProperty("Accept", "application/octet-stream");
-            connection.setConnectTimeout(30000); // 30 秒連接超時
-            connection.setReadTimeout(60000);    // 60 秒讀取超時
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
             
             // 3. 建立連接
             connection.connect();
@@ -50,11 +89,23 @@ public class HttpURLConnectionExcelController {
             int responseCode = connection.getResponseCode();
             if (responseCode == HttpURLConnection.HTTP_OK) {
                 
-                // 5. 讀取回應資料 (使用串流方式)
-                byte[] excelData = readInputStreamToBytes(connection.getInputStream());
-                
-                // 6. 使用 POI 讀取 Excel 檔案
-                Map<String, Object> readResult = excelReaderService.readExcelData(excelData);
+                // 5. 讀取回應資料：串流直接寫入 ExcelPayload，大檔案溢寫到暫存檔，不複製成 byte[]
+                Map<String, Object> readResult;
+                long fileSize;
+                boolean spooledToDisk;
+                try (ExcelPayload payload = excelReaderService.spool(connection.getInputStream(),
+                                                                     connection.getContentLengthLong())) {
+                    responseConsumed = true;
+                    excelMetrics.recordTransfer(transferSample, ExcelMetrics.CLIENT_URL_CONNECTION,
+                            "generate-stream", "success");
+                    excelMetrics.recordTransferBytes(ExcelMetrics.CLIENT_URL_CONNECTION, "generate-stream",
+                            ExcelMetrics.DIRECTION_RECEIVED, payload.size());
+                    
+                    // 6. 使用 POI 讀取 Excel 檔案
+                    readResult = excelReaderService.readExcelData(payload, engine, options);
+                    fileSize = payload.size();
+                    spooledToDisk = payload.isSpilled();
+                }
                 
                 // 7. 建立完整回應
                 Map<String, Object> result = new HashMap<>();
@@ -66,8 +117,9 @@ public class HttpURLConnectionExcelController {
                 result.put("source_endpoint", "/excel/generate-stream");
                 result.put("http_client", "java.net.HttpURLConnection");
                 result.put("optimization", "StreamingResponseBody + URLConnection");
-                result.put("file_size", excelData.length);
-                result.put("file_size_mb", String.format("%.2f MB", excelData.length / 1024.0 / 1024.0));
+                result.put("file_size", fileSize);
+                result.put("file_size_mb", String.format("%.2f MB", fileSize / 1024.0 / 1024.0));
+                result.put("spooled_to_disk", spooledToDisk);
                 result.put("download_status", "success");
                 result.put("response_code", responseCode);
                 result.put("read_result", readResult);
@@ -126,25 +178,47 @@ public class HttpURLConnectionExcelController {
             
             return error;
         } finally {
-            // 9. 確保連接被關閉
-            if (connection != null) {
+            // 9. 回應已完整讀取時不呼叫 disconnect()，讓 JDK keep-alive 快取重用這條 TCP 連線；
+            //    只有回應未讀完（發生錯誤）時才強制關閉
+            if (connection != null && !responseConsumed) {
                 connection.disconnect();
             }
+            if (!responseConsumed) {
+                excelMetrics.recordTransfer(transferSample, ExcelMetrics.CLIENT_URL_CONNECTION,
+                        "generate-stream", "error");
+            }
         }
     }
     
     @GetMapping("/generate-and-read-sample")
-    public Map<String, Object> generateAndReadSampleExcel() {
+    public Map<String, Object> generateAndReadSampleExcel(@RequestParam(defaultValue = ExcelReaderService.ENGINE_AUTO) String engine,
+                                                          @RequestParam(defaultValue = UPLOAD_FILE) String upload) {
         try {
-            // 步驟 1: 在 demo-api 本地建立一個只有標題列的 Excel
-            byte[] emptyExcelData = createEmptyExcelWithHeaders();
-            
-            // 步驟 2: 使用 HttpURLConnection 將 Excel 傳送到 demo-excel 填充資料
-            String uploadUrl = DEMO_EXCEL_URL + "/excel/fill-data";
-            byte[] filledExcelData = uploadExcelAndGetResponse(uploadUrl, emptyExcelData, "template.xlsx");
+            // 步驟 1: 只有標題列的 Excel
+            //   upload=file   啟動時已建立，以已知 Content-Length 直接上傳記憶體中的內容（不寫暫存檔）
+            //   upload=stream 每次以 SXSSF 產生，workbook.write 直接寫入 chunked 請求體，產生與上傳同時進行
+            MultipartUpload multipartUpload;
+            if (UPLOAD_STREAM.equalsIgnoreCase(upload)) {
+                multipartUpload = MultipartUpload.ofWriter("file", "template.xlsx", MultipartUpload.XLSX_CONTENT_TYPE,
+                        this::writeEmptyExcelWithHeaders);
+            } else {
+                multipartUpload = MultipartUpload.ofBytes("file", "template.xlsx", MultipartUpload.XLSX_CONTENT_TYPE,
+                        emptyExcelWithHeaders);
+            }
             
-            // 步驟 3: 讀取並解析填充後的 Excel
-            Map<String, Object> readResult = excelReaderService.readExcelData(filledExcelData);
+            // 步驟 2: 使用 HttpURLConnection 將 Excel 串流上傳到 demo-excel 填充資料
+            String uploadUrl = demoExcelUrl + "/excel/fill-data";
+            Map<String, Object> readResult;
+            long emptyExcelSize;
+            long filledExcelSize;
+            boolean spooledToDisk;
+            try (UploadResponse response = uploadExcelAndGetResponse(uploadUrl, multipartUpload)) {
+                // 步驟 3: 讀取並解析填充後的 Excel
+                readResult = excelReaderService.readExcelData(response.payload(), engine);
+                emptyExcelSize = response.sentBytes();
+                filledExcelSize = response.payload().size();
+                spooledToDisk = response.payload().isSpilled();
+            }
             
             // 步驟 4: 驗證標題列
             String[] expectedHeaders = {"ID", "姓名", "部門", "薪資", "入職日期", "狀態"};
@@ -162,12 +236,14 @@ public class HttpURLConnectionExcelController {
             result.put("source_service", "demo-excel");
             result.put("target_endpoint", "/excel/fill-data");
             result.put("http_client", "java.net.HttpURLConnection");
+            result.put("upload_mode", multipartUpload.isChunked() ? "chunked" : "fixed-length");
             result.put("expected_headers", expectedHeaders);
             result.put("headers_validation", validationResult.get("valid"));
             result.put("headers_validation_message", validationResult.get("message"));
-            result.put("empty_excel_size", emptyExcelData.length);
-            result.put("filled_excel_size", filledExcelData.length);
-            result.put("filled_excel_size_kb", String.format("%.2f KB", filledExcelData.length / 1024.0));
+            result.put("empty_excel_size", emptyExcelSize);
+            result.put("filled_excel_size", filledExcelSize);
+            result.put("filled_excel_size_kb", String.format("%.2f KB", filledExcelSize / 1024.0));
+            result.put("spooled_to_disk", spooledToDisk);
             result.put("excel_content", readResult);
             result.put("status", "completed");
             
@@ -187,14 +263,48 @@ public class HttpURLConnectionExcelController {
         }
     }
     
-    // 建立只有標題列的空 Excel
-    private byte[] createEmptyExcelWithHeaders() throws IOException {
-        org.apache.poi.ss.usermodel.Workbook workbook = new org.apache.poi.xssf.usermodel.XSSFWorkbook();
+    // 以 SXSSF 產生只有標題列的空 Excel 並直接寫入上傳請求體：列超過視窗即寫到暫存檔，
+    // zip 邊壓縮邊寫入連線，模板再大記憶體用量也固定，不經過 byte[]
+    private void writeEmptyExcelWithHeaders(OutputStream outputStream) throws IOException {
+        org.apache.poi.xssf.streaming.SXSSFWorkbook workbook = new org.apache.poi.xssf.streaming.SXSSFWorkbook() {
+            @Override
+            protected ZipArchiveOutputStream createArchiveOutputStream(OutputStream out) {
+                ZipArchiveOutputStream zipOutputStream = super.createArchiveOutputStream(out);
+                zipOutputStream.setLevel(templateDeflateLevel);
+                return zipOutputStream;
+            }
+        };
+        try {
+            addHeaderSheet(workbook);
+            workbook.write(outputStream);
+        } finally {
+            // 刪除 SXSSF 暫存檔
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+    
+    // 建立只有標題列的空 Excel，以 deflateLevel 壓縮
+    private static byte[] createEmptyExcelWithHeaders(int deflateLevel) throws IOException {
+        try (org.apache.poi.xssf.usermodel.XSSFWorkbook workbook = new org.apache.poi.xssf.usermodel.XSSFWorkbook();
+             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            addHeaderSheet(workbook);
+            
+            // XSSFWorkbook.write 收到 ZipArchiveOutputStream 時直接寫入其中，在這裡設定 Deflater 等級，不需要重新打包
+            ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(outputStream);
+            zipOutputStream.setLevel(deflateLevel);
+            workbook.write(zipOutputStream);
+            return outputStream.toByteArray();
+        }
+    }
+    
+    // 模板內容：Sample Data 工作表與標題列
+    private static void addHeaderSheet(org.apache.poi.ss.usermodel.Workbook workbook) {
         org.apache.poi.ss.usermodel.Sheet sheet = workbook.createSheet("Sample Data");
         
         // 建立標題行
         org.apache.poi.ss.usermodel.Row headerRow = sheet.createRow(0);
-        String[] headers = {"ID", "姓名", "部門", "薪資", "入職日期", "狀態"};
+        String[] headers = TEMPLATE_HEADERS;
         
         // 標題樣式
         org.apache.poi.ss.usermodel.CellStyle headerStyle = workbook.createCellStyle();
@@ -209,48 +319,99 @@ public class HttpURLConnectionExcelController {
             org.apache.poi.ss.usermodel.Cell cell = headerRow.createCell(i);
             cell.setCellValue(headers[i]);
             cell.setCellStyle(headerStyle);
-            sheet.autoSizeColumn(i);
+            sheet.setColumnWidth(i, headerColumnWidth(headers[i]));
         }
-        
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            workbook.write(outputStream);
-            workbook.close();
-            return outputStream.toByteArray();
+    }
+    
+    // 不使用 autoSizeColumn（需要 AWT 字型，在建構子中失敗會讓 bean 無法啟動）；
+    // 與 demo-excel ColumnWidthEstimator 的標題欄寬相同：多行取最寬的一行，12pt 粗體標題乘 1.2，左右留白 1 個字元，上限 255 字元
+    private static int headerColumnWidth(String header) {
+        double max = 0;
+        double line = 0;
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (c == '\n') {
+                max = Math.max(max, line);
+                line = 0;
+            } else {
+                line += charWidth(c);
+            }
         }
+        return (int) Math.min(255 * 256, Math.round((Math.max(max, line) * 1.2 + 1.0) * 256));
     }
     
-    // 使用 HttpURLConnection 上傳 Excel 並接收 StreamingResponseBody 回應
-    private byte[] uploadExcelAndGetResponse(String uploadUrl, byte[] excelData, String filename) throws IOException {
-        String boundary = "----WebKitFormBoundary" + System.currentTimeMillis();
-        
+    // 照搬 demo-excel ColumnWidthEstimator.charWidth：以預設字型的數字 '0' 為 1 個單位
+    private static double charWidth(char c) {
+        if (c < 0x80) {
+            if (c >= '0' && c <= '9') {
+                return 1.0;
+            }
+            switch (c) {
+                case 'i', 'j', 'l', 'I', '.', ',', ':', ';', '\'', '!', '|', ' ', '-', 'f', 't', 'r' -> {
+                    return 0.5;
+                }
+                case 'm', 'w', 'M', 'W', '@', '%' -> {
+                    return 1.5;
+                }
+                default -> {
+                    return c >= 'A' && c <= 'Z' ? 1.1 : 0.9;
+                }
+            }
+        }
+        // 中日韓文字、全形符號與全形英數（U+FF01–U+FF60）以兩個單位計算
+        if ((c >= 0x1100 && c <= 0x115F) || (c >= 0x2E80 && c <= 0xA4CF) || (c >= 0xAC00 && c <= 0xD7A3)
+                || (c >= 0xF900 && c <= 0xFAFF) || (c >= 0xFE30 && c <= 0xFE4F) || (c >= 0xFF01 && c <= 0xFF60)
+                || (c >= 0xFFE0 && c <= 0xFFE6)) {
+            return 2.0;
+        }
+        // 擴充區漢字等補充平面字元由一對 surrogate 組成，整個字算兩個單位
+        if (Character.isSurrogate(c)) {
+            return Character.isHighSurrogate(c) ? 2.0 : 0;
+        }
+        return 1.0;
+    }
+    
+    // store = 只存不壓縮（Deflater 等級 0），fast = 等級 1，best = 等級 9，其他為 zlib 預設等級
+    private static int templateDeflateLevel(String compression) {
+        return switch (compression.toLowerCase()) {
+            case "store" -> Deflater.NO_COMPRESSION;
+            case "fast" -> Deflater.BEST_SPEED;
+            case "best" -> Deflater.BEST_COMPRESSION;
+            default -> Deflater.DEFAULT_COMPRESSION;
+        };
+    }
+    
+    // 使用 HttpURLConnection 串流上傳 Excel，StreamingResponseBody 回應寫入 ExcelPayload（大檔案溢寫到暫存檔），
+    // 上傳與下載都不經過完整的 byte[]；呼叫端負責關閉回傳的 UploadResponse
+    private UploadResponse uploadExcelAndGetResponse(String uploadUrl, MultipartUpload multipartUpload) throws IOException {
         HttpURLConnection connection = null;
+        boolean responseConsumed = false;
+        Timer.Sample transferSample = excelMetrics.start();
         try {
             URL url = new URL(uploadUrl);
             connection = (HttpURLConnection) url.openConnection();
             
             connection.setRequestMethod("POST");
-            connection.setDoOutput(true);
-            connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
             connection.setRequestProperty("Accept", "application/octet-stream");
-            connection.setConnectTimeout(30000);
-            connection.setReadTimeout(60000);
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
+            multipartUpload.prepare(connection);
             
-            // 建立 multipart/form-data 請求體
-            try (java.io.OutputStream outputStream = connection.getOutputStream()) {
-                // 寫入檔案部分
-                outputStream.write(("--" + boundary + "\r\n").getBytes());
-                outputStream.write(("Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n").getBytes());
-                outputStream.write(("Content-Type: application/vnd.openxmlformats-officedocument.spreadsheetml.sheet\r\n\r\n").getBytes());
-                outputStream.write(excelData);
-                outputStream.write(("\r\n--" + boundary + "--\r\n").getBytes());
-                outputStream.flush();
-            }
+            // 建立 multipart/form-data 請求體：邊寫邊送出，不在 JDK 內部緩衝
+            long sentBytes = multipartUpload.send(connection);
+            excelMetrics.recordTransferBytes(ExcelMetrics.CLIENT_URL_CONNECTION, "fill-data",
+                    ExcelMetrics.DIRECTION_SENT, sentBytes);
             
             // 讀取 StreamingResponseBody 回應
             int responseCode = connection.getResponseCode();
             if (responseCode == HttpURLConnection.HTTP_OK) {
-                // 使用串流方式讀取回應，適合處理 StreamingResponseBody
-                return readInputStreamToBytes(connection.getInputStream());
+                // 回應串流直接寫入 ExcelPayload，不複製成 byte[]
+                ExcelPayload payload = excelReaderService.spool(connection.getInputStream(),
+                                                                connection.getContentLengthLong());
+                responseConsumed = true;
+                excelMetrics.recordTransferBytes(ExcelMetrics.CLIENT_URL_CONNECTION, "fill-data",
+                        ExcelMetrics.DIRECTION_RECEIVED, payload.size());
+                return new UploadResponse(sentBytes, payload);
             } else {
                 // 讀取錯誤訊息
                 String errorMessage = connection.getResponseMessage();
@@ -263,9 +424,21 @@ public class HttpURLConnectionExcelController {
             }
             
         } finally {
-            if (connection != null) {
+            // 完整讀取的連線交回 keep-alive 快取重用
+            if (connection != null && !responseConsumed) {
                 connection.disconnect();
             }
+            excelMetrics.recordTransfer(transferSample, ExcelMetrics.CLIENT_URL_CONNECTION, "fill-data",
+                    responseConsumed ? "success" : "error");
+        }
+    }
+    
+    // 上傳的模板大小與填充後的檔案
+    private record UploadResponse(long sentBytes, ExcelPayload payload) implements AutoCloseable {
+        
+        @Override
+        public void close() throws IOException {
+            payload.close();
         }
     }
     
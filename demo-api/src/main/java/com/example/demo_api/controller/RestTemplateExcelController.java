@@ -1,5 +1,10 @@
 package com.example.demo_api.controller;
 
+import com.example.demo_api.config.DemoExcelClientProperties;
+import com.example.demo_api.service.ExcelJsonRowWriter;
+import com.example.demo_api.service.ExcelMetrics;
+import com.example.demo_api.service.ExcelPayload;
+import com.example.demo_api.service.ExcelReadOptions;
 import com.example.demo_api.service.ExcelReaderService;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -7,9 +12,14 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -18,36 +28,40 @@ public class RestTemplateExcelController {
     
     private final RestTemplate restTemplate;
     private final ExcelReaderService excelReaderService;
-    private static final String DEMO_EXCEL_URL = "http://demo-excel-dev:8080";
+    private final ObjectMapper objectMapper;
+    private final ExcelMetrics excelMetrics;
+    private final String demoExcelUrl;
     
     @Autowired
-    public RestTemplateExcelController(RestTemplate restTemplate, ExcelReaderService excelReaderService) {
+    public RestTemplateExcelController(RestTemplate restTemplate, ExcelReaderService excelReaderService,
+                                       ObjectMapper objectMapper, ExcelMetrics excelMetrics,
+                                       DemoExcelClientProperties clientProperties) {
         this.restTemplate = restTemplate;
         this.excelReaderService = excelReaderService;
+        this.objectMapper = objectMapper;
+        this.excelMetrics = excelMetrics;
+        this.demoExcelUrl = clientProperties.getBaseUrl();
     }
     
     @GetMapping("/request-and-read")
-    public Map<String, Object> requestAndReadExcel(@RequestParam(defaultValue = "sample") String type) {
+    public Map<String, Object> requestAndReadExcel(@RequestParam(defaultValue = "sample") String type,
+                                                   @RequestParam(defaultValue = ExcelReaderService.ENGINE_AUTO) String engine,
+                                                   ExcelReadOptions options) {
         try {
             // 1. 向 demo-excel 請求 Excel 檔案
-            String downloadUrl = DEMO_EXCEL_URL + "/excel/generate-bytes?type=" + type;
+            String downloadUrl = demoExcelUrl + "/excel/generate-bytes?type=" + type;
             
             HttpHeaders headers = new HttpHeaders();
             headers.setAccept(java.util.Arrays.asList(MediaType.APPLICATION_OCTET_STREAM));
             HttpEntity<String> entity = new HttpEntity<>(headers);
             
-            ResponseEntity<byte[]> response = restTemplate.exchange(
-                downloadUrl, 
-                HttpMethod.GET, 
-                entity, 
-                byte[].class
-            );
+            ResponseEntity<byte[]> response = exchangeForBytes(downloadUrl, entity, "generate-bytes");
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 byte[] excelData = response.getBody();
                 
                 // 2. 使用 POI 讀取 Excel 檔案
-                Map<String, Object> readResult = excelReaderService.readExcelData(excelData);
+                Map<String, Object> readResult = excelReaderService.readExcelData(excelData, engine, options);
                 
                 // 3. 建立完整回應
                 Map<String, Object> result = new HashMap<>();
@@ -85,27 +99,24 @@ public class RestTemplateExcelController {
     }
     
     @GetMapping("/request-resource-and-read")
-    public Map<String, Object> requestResourceAndReadExcel(@RequestParam(defaultValue = "sample") String type) {
+    public Map<String, Object> requestResourceAndReadExcel(@RequestParam(defaultValue = "sample") String type,
+                                                           @RequestParam(defaultValue = ExcelReaderService.ENGINE_AUTO) String engine,
+                                                           ExcelReadOptions options) {
         try {
             // 1. 向 demo-excel 請求 Excel 檔案資源
-            String downloadUrl = DEMO_EXCEL_URL + "/excel/generate-resource?type=" + type;
+            String downloadUrl = demoExcelUrl + "/excel/generate-resource?type=" + type;
             
             HttpHeaders headers = new HttpHeaders();
             headers.setAccept(java.util.Arrays.asList(MediaType.APPLICATION_OCTET_STREAM));
             HttpEntity<String> entity = new HttpEntity<>(headers);
             
-            ResponseEntity<byte[]> response = restTemplate.exchange(
-                downloadUrl, 
-                HttpMethod.GET, 
-                entity, 
-                byte[].class
-            );
+            ResponseEntity<byte[]> response = exchangeForBytes(downloadUrl, entity, "generate-resource");
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 byte[] excelData = response.getBody();
                 
                 // 2. 使用 POI 讀取 Excel 檔案
-                Map<String, Object> readResult = excelReaderService.readExcelData(excelData);
+                Map<String, Object> readResult = excelReaderService.readExcelData(excelData, engine, options);
                 
                 // 3. 建立完整回應
                 Map<String, Object> result = new HashMap<>();
@@ -153,27 +164,19 @@ public class RestTemplateExcelController {
     }
     
     @GetMapping("/request-stream-and-read")
-    public Map<String, Object> requestStreamAndReadExcel(@RequestParam(defaultValue = "sample") String type) {
+    public Map<String, Object> requestStreamAndReadExcel(@RequestParam(defaultValue = "sample") String type,
+                                                         @RequestParam(defaultValue = ExcelReaderService.ENGINE_AUTO) String engine,
+                                                         ExcelReadOptions options) {
         try {
             // 1. 向 demo-excel 請求 Excel 檔案串流
-            String downloadUrl = DEMO_EXCEL_URL + "/excel/generate-stream?type=" + type;
+            String downloadUrl = demoExcelUrl + "/excel/generate-stream?type=" + type;
             
-            HttpHeaders headers = new HttpHeaders();
-            headers.setAccept(java.util.Arrays.asList(MediaType.APPLICATION_OCTET_STREAM));
-            HttpEntity<String> entity = new HttpEntity<>(headers);
+            DownloadedExcel download = downloadToPayload(downloadUrl);
             
-            ResponseEntity<byte[]> response = restTemplate.exchange(
-                downloadUrl, 
-                HttpMethod.GET, 
-                entity, 
-                byte[].class
-            );
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                byte[] excelData = response.getBody();
-                
+            // 回應已完整讀取，連線在解析前就歸還連線池
+            try (ExcelPayload payload = download.payload()) {
                 // 2. 使用 POI 讀取 Excel 檔案
-                Map<String, Object> readResult = excelReaderService.readExcelData(excelData);
+                Map<String, Object> readResult = excelReaderService.readExcelData(payload, engine, options);
                 
                 // 3. 建立完整回應
                 Map<String, Object> result = new HashMap<>();
@@ -184,15 +187,16 @@ public class RestTemplateExcelController {
                 result.put("excel_type", type);
                 result.put("source_service", "demo-excel");
                 result.put("source_endpoint", "/excel/generate-stream");
-                result.put("optimization", "StreamingResponseBody");
-                result.put("file_size", excelData.length);
-                result.put("file_size_mb", String.format("%.2f MB", excelData.length / 1024.0 / 1024.0));
+                result.put("optimization", "StreamingResponseBody + ResponseExtractor");
+                result.put("file_size", payload.size());
+                result.put("file_size_mb", String.format("%.2f MB", payload.size() / 1024.0 / 1024.0));
+                result.put("spooled_to_disk", payload.isSpilled());
                 result.put("download_status", "success");
                 result.put("read_result", readResult);
                 result.put("status", "completed");
                 
                 // 檢查回應標頭中的檔案資訊
-                HttpHeaders responseHeaders = response.getHeaders();
+                HttpHeaders responseHeaders = download.headers();
                 if (responseHeaders.getContentDisposition() != null) {
                     result.put("content_disposition", responseHeaders.getContentDisposition().toString());
                 }
@@ -201,8 +205,6 @@ public class RestTemplateExcelController {
                 }
                 
                 return result;
-            } else {
-                throw new RuntimeException("Failed to download Excel stream from demo-excel service");
             }
             
         } catch (Exception e) {
@@ -214,11 +216,151 @@ public class RestTemplateExcelController {
             error.put("excel_type", type);
             error.put("source_service", "demo-excel");
             error.put("source_endpoint", "/excel/generate-stream");
-            error.put("optimization", "StreamingResponseBody");
+            error.put("optimization", "StreamingResponseBody + ResponseExtractor");
             error.put("error", e.getMessage());
             error.put("status", "error");
             
             return error;
         }
     }
+    
+    // 結構分析：mode=metadata 只讀 workbook.xml 與各工作表的 <dimension>，可在決定讀取方式前先做預檢
+    @GetMapping("/request-stream-and-analyze")
+    public Map<String, Object> requestStreamAndAnalyzeExcel(@RequestParam(defaultValue = "sample") String type,
+                                                            @RequestParam(defaultValue = ExcelReaderService.ANALYZE_METADATA) String mode) {
+        try {
+            String downloadUrl = demoExcelUrl + "/excel/generate-stream?type=" + type;
+            
+            DownloadedExcel download = downloadToPayload(downloadUrl);
+            
+            try (ExcelPayload payload = download.payload()) {
+                Map<String, Object> analysisResult = excelReaderService.analyzeExcelStructure(payload, mode);
+                
+                Map<String, Object> result = new HashMap<>();
+                result.put("service", "demo-api");
+                result.put("http_client", "RestTemplate");
+                result.put("operation", "request_stream_and_analyze_excel");
+                result.put("timestamp", LocalDateTime.now());
+                result.put("excel_type", type);
+                result.put("source_service", "demo-excel");
+                result.put("source_endpoint", "/excel/generate-stream");
+                result.put("file_size", payload.size());
+                result.put("file_size_mb", String.format("%.2f MB", payload.size() / 1024.0 / 1024.0));
+                result.put("spooled_to_disk", payload.isSpilled());
+                result.put("download_status", "success");
+                result.put("analysis_result", analysisResult);
+                result.put("status", "completed");
+                
+                return result;
+            }
+            
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("service", "demo-api");
+            error.put("http_client", "RestTemplate");
+            error.put("operation", "request_stream_and_analyze_excel");
+            error.put("timestamp", LocalDateTime.now());
+            error.put("excel_type", type);
+            error.put("source_service", "demo-excel");
+            error.put("source_endpoint", "/excel/generate-stream");
+            error.put("error", e.getMessage());
+            error.put("status", "error");
+            
+            return error;
+        }
+    }
+    
+    // 邊解析邊輸出：下載後以 SAX 逐列解析，每列直接寫入 HTTP 回應，不建立 rows 集合
+    @GetMapping("/request-and-stream-rows")
+    public ResponseEntity<StreamingResponseBody> requestAndStreamRows(@RequestParam(defaultValue = "sample") String type,
+                                                                      @RequestParam(defaultValue = ExcelJsonRowWriter.FORMAT_NDJSON) String format,
+                                                                      ExcelReadOptions options) {
+        boolean ndjson = ExcelJsonRowWriter.FORMAT_NDJSON.equalsIgnoreCase(format);
+        String downloadUrl = demoExcelUrl + "/excel/generate-stream?type=" + type;
+        
+        StreamingResponseBody stream = outputStream -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            // 由容器負責關閉回應串流
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            ExcelJsonRowWriter writer = new ExcelJsonRowWriter(generator, ndjson);
+            
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            metadata.put("service", "demo-api");
+            metadata.put("http_client", "RestTemplate");
+            metadata.put("operation", "request_and_stream_rows");
+            metadata.put("timestamp", LocalDateTime.now());
+            metadata.put("excel_type", type);
+            metadata.put("source_service", "demo-excel");
+            metadata.put("source_endpoint", "/excel/generate-stream");
+            metadata.put("read_engine", ExcelReaderService.ENGINE_SAX);
+            writer.begin(metadata);
+            
+            try {
+                DownloadedExcel download = downloadToPayload(downloadUrl);
+                try (ExcelPayload payload = download.payload()) {
+                    excelReaderService.streamExcelData(payload, options, writer);
+                    
+                    Map<String, Object> summary = new LinkedHashMap<>();
+                    summary.put("file_size", payload.size());
+                    summary.put("spooled_to_disk", payload.isSpilled());
+                    writer.finish(summary);
+                }
+            } catch (Exception e) {
+                writer.fail(e);
+            }
+            generator.close();
+        };
+        
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(stream);
+    }
+    
+    // 使用 ResponseExtractor 直接取得回應 InputStream，交給 ExcelPayload 暫存，
+    // 不經過 byte[] 反序列化；大檔案會溢寫到暫存檔。回應讀完後連線即歸還連線池
+    private DownloadedExcel downloadToPayload(String downloadUrl) {
+        Timer.Sample sample = excelMetrics.start();
+        DownloadedExcel download = null;
+        try {
+            download = restTemplate.execute(
+                downloadUrl,
+                HttpMethod.GET,
+                request -> request.getHeaders().setAccept(java.util.Arrays.asList(MediaType.APPLICATION_OCTET_STREAM)),
+                response -> new DownloadedExcel(
+                    excelReaderService.spool(response.getBody(), response.getHeaders().getContentLength()),
+                    response.getHeaders()
+                )
+            );
+        } finally {
+            excelMetrics.recordTransfer(sample, ExcelMetrics.CLIENT_REST_TEMPLATE, "generate-stream",
+                    download != null ? "success" : "error");
+        }
+        if (download == null) {
+            throw new RuntimeException("Failed to download Excel stream from demo-excel service");
+        }
+        excelMetrics.recordTransferBytes(ExcelMetrics.CLIENT_REST_TEMPLATE, "generate-stream",
+                ExcelMetrics.DIRECTION_RECEIVED, download.payload().size());
+        return download;
+    }
+    
+    // byte[] 下載：計時包含回應內容的傳輸，收到的位元組數記錄到 excel.transfer.bytes
+    private ResponseEntity<byte[]> exchangeForBytes(String downloadUrl, HttpEntity<String> entity, String endpoint) {
+        Timer.Sample sample = excelMetrics.start();
+        ResponseEntity<byte[]> response = null;
+        try {
+            response = restTemplate.exchange(downloadUrl, HttpMethod.GET, entity, byte[].class);
+        } finally {
+            excelMetrics.recordTransfer(sample, ExcelMetrics.CLIENT_REST_TEMPLATE, endpoint,
+                    response != null ? "success" : "error");
+        }
+        if (response.getBody() != null) {
+            excelMetrics.recordTransferBytes(ExcelMetrics.CLIENT_REST_TEMPLATE, endpoint,
+                    ExcelMetrics.DIRECTION_RECEIVED, response.getBody().length);
+        }
+        return response;
+    }
+    
+    // ResponseExtractor 的結果：暫存後的檔案內容與回應標頭
+    private record DownloadedExcel(ExcelPayload payload, HttpHeaders headers) {
+    }
 }
@@ -0,0 +1,149 @@
+package com.example.demo_api.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// 單一下游服務的並行上限（AIMD）：成功且延遲正常時上限每輪加 1（每個回應加 1/limit），
+// 逾時、5xx 或延遲超過門檻時乘上 backoffRatio；上限已滿時請求進入有界的等待佇列，
+// 佇列已滿或等待逾時立即以 DownstreamSaturatedException 拒絕。等待中的請求只是未完成的 CompletableFuture，
+// 不佔用執行緒
+public final class AdaptiveConcurrencyLimiter {
+
+    public static final String REJECT_QUEUE_FULL = "queue_full";
+    public static final String REJECT_QUEUE_TIMEOUT = "queue_timeout";
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final int queueCapacity;
+    private final long queueTimeoutMillis;
+
+    private final ArrayDeque<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                                      long latencyThresholdMillis, int queueCapacity, long queueTimeoutMillis) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    // 取得執行許可：有空位時立即完成，否則排隊；佇列已滿時回傳已失敗的 future
+    public CompletableFuture<Permit> acquire() {
+        CompletableFuture<Permit> waiter;
+        synchronized (this) {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(new Permit());
+            }
+            if (waiters.size() >= queueCapacity) {
+                return CompletableFuture.failedFuture(new DownstreamSaturatedException(name, REJECT_QUEUE_FULL));
+            }
+            waiter = new CompletableFuture<>();
+            waiters.addLast(waiter);
+        }
+        // 逾時的請求移出佇列，改以 queue_timeout 拒絕
+        return waiter.orTimeout(queueTimeoutMillis, TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(e -> {
+                    synchronized (this) {
+                        waiters.remove(waiter);
+                    }
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    return CompletableFuture.failedFuture(cause instanceof TimeoutException
+                            ? new DownstreamSaturatedException(name, REJECT_QUEUE_TIMEOUT) : cause);
+                });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    private void release(Outcome outcome, long latencyNanos) {
+        List<CompletableFuture<Permit>> granted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            if (outcome == Outcome.OVERLOADED || (outcome == Outcome.SUCCESS && latencyNanos > latencyThresholdNanos)) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (outcome == Outcome.SUCCESS && inFlight + 1 >= (int) limit) {
+                // 只有實際用滿上限時才放寬，閒置時的成功回應不代表下游能承受更多
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                CompletableFuture<Permit> waiter = waiters.pollFirst();
+                if (!waiter.isDone()) {
+                    inFlight++;
+                    granted.add(waiter);
+                }
+            }
+        }
+        // 在鎖外完成 future，後續的 sendAsync 等回呼不在鎖內執行
+        for (CompletableFuture<Permit> waiter : granted) {
+            Permit permit = new Permit();
+            if (!waiter.complete(permit)) {
+                // 與逾時同時發生，許可交還
+                permit.ignore();
+            }
+        }
+    }
+
+    private enum Outcome {
+        SUCCESS, OVERLOADED, IGNORED
+    }
+
+    // 一次下游呼叫的許可，呼叫結束時以 success / overloaded / ignore 其中之一交還，重複交還無效
+    public final class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private boolean released;
+
+        // 下游正常回應，延遲計入 AIMD
+        public void success() {
+            release(Outcome.SUCCESS);
+        }
+
+        // 下游過載的訊號：逾時、連線失敗、429 / 5xx
+        public void overloaded() {
+            release(Outcome.OVERLOADED);
+        }
+
+        // 與下游負載無關的結束（例如本地錯誤），不調整上限
+        public void ignore() {
+            release(Outcome.IGNORED);
+        }
+
+        private void release(Outcome outcome) {
+            synchronized (AdaptiveConcurrencyLimiter.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            AdaptiveConcurrencyLimiter.this.release(outcome, System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo_api.service;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.NumberToTextConverter;
+
+// dom / sax / parallel 共用的數值儲存格文字：數值以 NumberToTextConverter 輸出完整精度（不依儲存格的數值格式四捨五入或加千分位），
+// 日期格式的數值輸出 ISO 日期（與 columnar layout 相同）。sax 模式由 XSSFSheetXMLHandler 呼叫 formatRawCellContents，
+// dom 模式直接呼叫 numericText，同一份檔案不論使用哪個引擎結果都相同
+final class CellTextFormatter extends DataFormatter {
+
+    @Override
+    public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+        return numericText(value, formatIndex, formatString);
+    }
+
+    // 與 DateUtil.isCellDateFormatted 相同的判斷：日期格式且為有效的 Excel 日期
+    static String numericText(double value, int formatIndex, String formatString) {
+        if (formatString != null && DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+            return TypedColumn.dateText(value);
+        }
+        return NumberToTextConverter.toText(value);
+    }
+}
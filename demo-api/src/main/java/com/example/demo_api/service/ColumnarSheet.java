@@ -0,0 +1,123 @@
+package com.example.demo_api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// layout=columnar 的工作表內容：每個輸出欄位一個 TypedColumn，序列化時由 primitive 陣列直接寫出 JSON 陣列，
+// 不經過 List<List<String>>；標題列決定欄位與投影，之後的資料列依序以 0 起算的列號加入
+public final class ColumnarSheet implements JsonSerializable {
+
+    private final List<String> headers = new ArrayList<>();
+    private final List<TypedColumn> columns = new ArrayList<>();
+    // 原始欄位索引對應到輸出欄位，未投影的欄位為 -1；標題列之前為 null
+    private int[] positions;
+    private int rowCount;
+
+    // 依標題列建立欄位；指定投影時依 options.columns() 的順序輸出，找不到或重複的名稱略過
+    void setHeaders(List<String> sourceHeaders, ExcelReadOptions options) {
+        positions = new int[sourceHeaders.size()];
+        Arrays.fill(positions, -1);
+        List<String> selected = options.isProjected() ? options.columns() : sourceHeaders;
+        for (int i = 0; i < selected.size(); i++) {
+            int columnIndex = options.isProjected() ? sourceHeaders.indexOf(selected.get(i)) : i;
+            if (columnIndex >= 0 && positions[columnIndex] < 0) {
+                positions[columnIndex] = columns.size();
+                headers.add(sourceHeaders.get(columnIndex));
+                columns.add(new TypedColumn(sourceHeaders.get(columnIndex)));
+            }
+        }
+    }
+
+    // 標題列解析完成前一律接受
+    boolean acceptsColumn(int columnIndex) {
+        return positions == null || (columnIndex < positions.length && positions[columnIndex] >= 0);
+    }
+
+    // 原始欄位索引對應的輸出欄位，未投影或超出標題欄數時為 null
+    TypedColumn column(int columnIndex) {
+        if (positions == null || columnIndex < 0 || columnIndex >= positions.length || positions[columnIndex] < 0) {
+            return null;
+        }
+        return columns.get(positions[columnIndex]);
+    }
+
+    // 目前資料列的列號（0 起算）
+    int currentRow() {
+        return rowCount;
+    }
+
+    void endRow() {
+        rowCount++;
+    }
+
+    void finish() {
+        for (TypedColumn column : columns) {
+            column.finish(rowCount);
+        }
+    }
+
+    public List<String> getHeaders() {
+        return headers;
+    }
+
+    public List<TypedColumn> getColumns() {
+        return columns;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    // 與 rows layout 相同的工作表層級欄位，rows / sample_data 改為 columns；total_rows 含標題列
+    Map<String, Object> toSheetData(String sheetName, ExcelReadOptions options) {
+        finish();
+        Map<String, Object> sheetData = new HashMap<>();
+
+        sheetData.put("sheet_name", sheetName);
+        sheetData.put("layout", ExcelReadOptions.LAYOUT_COLUMNAR);
+        sheetData.put("headers", headers);
+        sheetData.put("total_rows", positions != null ? rowCount + 1 : rowCount);
+        sheetData.put("data_rows", rowCount);
+        sheetData.put("columns", this);
+        if (!options.isAll()) {
+            sheetData.put("offset", options.offset());
+            sheetData.put("limit", options.limit());
+        }
+
+        return sheetData;
+    }
+
+    long estimateBytes() {
+        long bytes = 64L;
+        for (TypedColumn column : columns) {
+            bytes += column.estimateBytes();
+        }
+        return bytes;
+    }
+
+    // 序列化為欄位陣列
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+        generator.writeStartArray();
+        for (TypedColumn column : columns) {
+            column.writeTo(generator);
+        }
+        generator.writeEndArray();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+        // 結果 Map 不使用多型型別資訊
+        serialize(generator, serializers);
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.demo_api.service;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+// layout=columnar 的 SAX 收集器：直接解析 sheet XML 的 <c t s><v>，數值不經過 DataFormatter 轉成字串，
+// 依儲存格型別寫入 ColumnarSheet 的 primitive 欄位；shared strings 依索引在欄位內只查詢一次。
+// 公式儲存格取快取的計算結果（<v>），不輸出公式字串
+class ColumnarSheetReader implements SheetCollector {
+
+    private final String sheetName;
+    private final ExcelReadOptions options;
+    private final ColumnarSheet sheet = new ColumnarSheet();
+
+    ColumnarSheetReader(String sheetName, ExcelReadOptions options) {
+        this.sheetName = sheetName;
+        this.options = options;
+    }
+
+    @Override
+    public ExcelReadOptions getOptions() {
+        return options;
+    }
+
+    @Override
+    public boolean acceptsColumn(int columnIndex) {
+        return sheet.acceptsColumn(columnIndex);
+    }
+
+    @Override
+    public ContentHandler newContentHandler(StylesTable styles, SharedStrings sharedStrings, DataFormatter formatter) {
+        return new CellHandler(styles, sharedStrings);
+    }
+
+    @Override
+    public Map<String, Object> toSheetData() {
+        return sheet.toSheetData(sheetName, options);
+    }
+
+    private final class CellHandler extends DefaultHandler {
+
+        private final StylesTable styles;
+        private final SharedStrings sharedStrings;
+        // 樣式索引是否為日期格式，同一樣式只判斷一次
+        private final Map<Integer, Boolean> dateStyles = new HashMap<>();
+        private final List<String> headerValues = new ArrayList<>();
+        private final StringBuilder value = new StringBuilder(64);
+
+        private int nextRowNum;
+        private boolean headerRow;
+        private int nextColumnIndex;
+        private int columnIndex;
+        private String cellType;
+        private int styleIndex;
+        private boolean hasValue;
+        private boolean valueOpen;
+        private boolean inInlineString;
+        private boolean inPhonetic;
+
+        CellHandler(StylesTable styles, SharedStrings sharedStrings) {
+            this.styles = styles;
+            this.sharedStrings = sharedStrings;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (uri != null && !uri.equals(NS_SPREADSHEETML)) {
+                return;
+            }
+            switch (localName) {
+                case "row" -> {
+                    // 與 XSSFSheetXMLHandler 相同：沒有 r 屬性時接續上一列
+                    String rowNumber = attributes.getValue("r");
+                    int rowNum = rowNumber != null ? Integer.parseInt(rowNumber) - 1 : nextRowNum;
+                    nextRowNum = rowNum + 1;
+                    headerRow = rowNum == 0;
+                    nextColumnIndex = 0;
+                }
+                case "c" -> {
+                    String cellReference = attributes.getValue("r");
+                    columnIndex = cellReference != null ? StreamingSheetHandler.columnIndex(cellReference) : nextColumnIndex;
+                    nextColumnIndex = columnIndex + 1;
+                    cellType = attributes.getValue("t");
+                    String style = attributes.getValue("s");
+                    styleIndex = style != null ? Integer.parseInt(style) : 0;
+                    value.setLength(0);
+                    hasValue = false;
+                }
+                case "v" -> {
+                    valueOpen = true;
+                    hasValue = true;
+                }
+                case "is" -> {
+                    inInlineString = true;
+                    hasValue = true;
+                }
+                case "t" -> valueOpen = inInlineString;
+                case "rPh" -> inPhonetic = true;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (uri != null && !uri.equals(NS_SPREADSHEETML)) {
+                return;
+            }
+            switch (localName) {
+                case "v", "t" -> valueOpen = false;
+                case "is" -> inInlineString = false;
+                case "rPh" -> inPhonetic = false;
+                case "c" -> endCell();
+                case "row" -> endRow();
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (valueOpen && !inPhonetic) {
+                value.append(ch, start, length);
+            }
+        }
+
+        private void endRow() {
+            if (headerRow) {
+                sheet.setHeaders(headerValues, options);
+                headerValues.clear();
+            } else {
+                sheet.endRow();
+            }
+        }
+
+        // 只有樣式、沒有值的儲存格視為空白
+        private void endCell() {
+            if (!hasValue) {
+                return;
+            }
+            if (headerRow) {
+                headerValues.add(headerText());
+                return;
+            }
+            TypedColumn column = sheet.column(columnIndex);
+            if (column == null) {
+                return;
+            }
+            int row = sheet.currentRow();
+            switch (cellType != null ? cellType : "n") {
+                case "s" -> column.addSharedString(row, Integer.parseInt(value, 0, value.length(), 10), sharedStrings);
+                case "inlineStr", "str", "e" -> column.addString(row, value.toString());
+                case "b" -> column.addBoolean(row, value.length() > 0 && value.charAt(0) == '1');
+                default -> addNumber(column, row);
+            }
+        }
+
+        // 一般整數不經過 double 轉換，其餘數值以 Double.parseDouble 保留完整精度
+        private void addNumber(TypedColumn column, int row) {
+            if (value.length() == 0) {
+                return;
+            }
+            if (isDateStyle(styleIndex)) {
+                column.addDate(row, Double.parseDouble(value.toString()));
+            } else if (isPlainInteger(value)) {
+                column.addInteger(row, Long.parseLong(value, 0, value.length(), 10));
+            } else {
+                column.addNumber(row, Double.parseDouble(value.toString()));
+            }
+        }
+
+        private String headerText() {
+            return switch (cellType != null ? cellType : "n") {
+                case "s" -> sharedStrings.getItemAt(Integer.parseInt(value, 0, value.length(), 10)).getString();
+                case "inlineStr", "str", "e" -> value.toString();
+                case "b" -> value.length() > 0 && value.charAt(0) == '1' ? "TRUE" : "FALSE";
+                default -> value.length() > 0 ? NumberToTextConverter.toText(Double.parseDouble(value.toString())) : "";
+            };
+        }
+
+        private boolean isDateStyle(int index) {
+            if (styles == null) {
+                return false;
+            }
+            return dateStyles.computeIfAbsent(index, key -> {
+                XSSFCellStyle style = styles.getStyleAt(key);
+                return style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+            });
+        }
+
+        // 最多 18 位數字（可帶負號），必定在 long 範圍內
+        private static boolean isPlainInteger(CharSequence text) {
+            int start = text.charAt(0) == '-' ? 1 : 0;
+            int length = text.length() - start;
+            if (length < 1 || length > 18) {
+                return false;
+            }
+            for (int i = start; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.demo_api.service;
+
+import com.example.demo_api.config.DemoExcelClientProperties;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 呼叫 demo-excel 的非同步 client：JDK HttpClient.sendAsync，等待回應期間不佔用 Tomcat 執行緒；
+// 每次呼叫先向 AdaptiveConcurrencyLimiter 取得許可，demo-excel 變慢或回應 429 / 5xx 時並行上限自動縮小，
+// 超出上限的請求在有界佇列中等待，佇列滿或等待逾時以 DownstreamSaturatedException 快速失敗
+@Component
+public class DemoExcelAsyncClient {
+
+    public static final String DOWNSTREAM = "demo-excel";
+
+    private final ExcelMetrics excelMetrics;
+    private final HttpClient httpClient;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final String baseUrl;
+    private final Duration readTimeout;
+    private final int spoolMemoryThresholdBytes;
+
+    @Autowired
+    public DemoExcelAsyncClient(DemoExcelClientProperties properties, ExcelMetrics excelMetrics,
+                                @Value("${excel.reader.spool-memory-threshold-bytes:2097152}") int spoolMemoryThresholdBytes) {
+        this.excelMetrics = excelMetrics;
+        this.baseUrl = properties.getBaseUrl();
+        this.readTimeout = properties.getReadTimeout();
+        this.spoolMemoryThresholdBytes = spoolMemoryThresholdBytes;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(properties.getConnectTimeout())
+                .build();
+
+        DemoExcelClientProperties.Async async = properties.getAsync();
+        this.limiter = new AdaptiveConcurrencyLimiter(DOWNSTREAM, async.getInitialLimit(), async.getMinLimit(),
+                async.getMaxLimit(), async.getBackoffRatio(), async.getLatencyThreshold().toMillis(),
+                async.getQueueCapacity(), async.getQueueTimeout().toMillis());
+        excelMetrics.bindLimiter(limiter);
+    }
+
+    // GET demo-excel 的 Excel 端點，200 時完成為 ExcelPayload（呼叫端負責關閉）；
+    // 並行上限與佇列已滿時以 DownstreamSaturatedException 失敗，不會送出請求。
+    // 呼叫端 cancel() 回傳的 future 時中止進行中的請求；還在等待許可的請求取得許可後立即交還，不會送出
+    public CompletableFuture<ExcelPayload> download(String pathAndQuery, String endpoint) {
+        Timer.Sample transferSample = excelMetrics.start();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery))
+                .timeout(readTimeout)
+                .header("Accept", "application/octet-stream")
+                .GET()
+                .build();
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicReference<CompletableFuture<HttpResponse<ExcelPayload>>> exchange = new AtomicReference<>();
+        CompletableFuture<ExcelPayload> transfer = limiter.acquire()
+                .thenCompose(permit -> {
+                    if (cancelled.get()) {
+                        permit.ignore();
+                        return CompletableFuture.failedFuture(new CancellationException("Download cancelled"));
+                    }
+                    CompletableFuture<HttpResponse<ExcelPayload>> response =
+                            httpClient.sendAsync(request, this::excelPayloadHandler);
+                    exchange.set(response);
+                    // 與 cancel() 同時發生時，兩邊至少有一方看得到對方
+                    if (cancelled.get()) {
+                        response.cancel(true);
+                    }
+                    return response.handle((result, error) -> complete(permit, result, error));
+                });
+        CompletableFuture<ExcelPayload> download = transfer.whenComplete((payload, error) -> {
+            Throwable cause = unwrap(error);
+            if (cause instanceof DownstreamSaturatedException saturated) {
+                excelMetrics.recordRejected(DOWNSTREAM, saturated.getReason());
+                excelMetrics.recordTransfer(transferSample, ExcelMetrics.CLIENT_HTTP_CLIENT, endpoint, "rejected");
+                return;
+            }
+            excelMetrics.recordTransfer(transferSample, ExcelMetrics.CLIENT_HTTP_CLIENT, endpoint,
+                    error == null ? "success" : "error");
+            if (payload != null) {
+                excelMetrics.recordTransferBytes(ExcelMetrics.CLIENT_HTTP_CLIENT, endpoint,
+                        ExcelMetrics.DIRECTION_RECEIVED, payload.size());
+            }
+        });
+        download.whenComplete((payload, error) -> {
+            if (!download.isCancelled()) {
+                return;
+            }
+            // 取消 download 不會傳回上游，由這裡中止 HttpClient 的請求（JDK 16 起 cancel(true) 會關閉連線）
+            cancelled.set(true);
+            CompletableFuture<HttpResponse<ExcelPayload>> response = exchange.get();
+            if (response != null) {
+                response.cancel(true);
+            }
+            // 取消前已下載完成的內容沒有人接手，刪除暫存檔
+            transfer.thenAccept(DemoExcelAsyncClient::closeQuietly);
+        });
+        return download;
+    }
+
+    public AdaptiveConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    // 200 的回應寫入 ExcelPayload，其他狀態碼直接丟棄 body
+    private HttpResponse.BodySubscriber<ExcelPayload> excelPayloadHandler(HttpResponse.ResponseInfo responseInfo) {
+        if (responseInfo.statusCode() != 200) {
+            return HttpResponse.BodySubscribers.replacing(null);
+        }
+        long contentLength = responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1);
+        return new ExcelPayloadSubscriber(contentLength, spoolMemoryThresholdBytes);
+    }
+
+    // 依結果交還許可：逾時、連線失敗、429 / 5xx 是過載訊號，其他 4xx 不調整上限
+    private ExcelPayload complete(AdaptiveConcurrencyLimiter.Permit permit, HttpResponse<ExcelPayload> response,
+                                  Throwable error) {
+        if (error != null) {
+            Throwable cause = unwrap(error);
+            if (cause instanceof IOException) {
+                permit.overloaded();
+            } else {
+                permit.ignore();
+            }
+            throw new CompletionException(cause);
+        }
+        int statusCode = response.statusCode();
+        if (statusCode == 200) {
+            permit.success();
+            return response.body();
+        }
+        if (statusCode == 429 || statusCode >= 500) {
+            permit.overloaded();
+        } else {
+            permit.ignore();
+        }
+        throw new CompletionException(new IOException("HTTP request failed with response code: " + statusCode));
+    }
+
+    private static void closeQuietly(ExcelPayload payload) {
+        try {
+            payload.close();
+        } catch (IOException ignored) {
+            // 暫存檔刪除失敗時由系統暫存目錄清理
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo_api.service;
+
+// 下游服務的並行上限與等待佇列都已滿，請求未送出即被拒絕；controller 轉成 503 + Retry-After
+public class DownstreamSaturatedException extends RuntimeException {
+
+    private final String downstream;
+    private final String reason;
+
+    public DownstreamSaturatedException(String downstream, String reason) {
+        super(downstream + " is saturated (" + reason + ")");
+        this.downstream = downstream;
+        this.reason = reason;
+    }
+
+    public String getDownstream() {
+        return downstream;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
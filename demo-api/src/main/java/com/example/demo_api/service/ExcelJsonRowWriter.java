@@ -0,0 +1,161 @@
+package com.example.demo_api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+// 將 SAX 逐列解析的結果直接寫到 HTTP 回應：
+// json   = 單一 JSON 物件，rows 陣列邊解析邊輸出
+// ndjson = 每行一個 JSON 物件（metadata / sheet / row / end_sheet / summary）
+public class ExcelJsonRowWriter implements ExcelRowCallback {
+
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private final JsonGenerator generator;
+    private final boolean ndjson;
+    private int currentSheetIndex;
+
+    public ExcelJsonRowWriter(JsonGenerator generator, boolean ndjson) {
+        this.generator = generator;
+        this.ndjson = ndjson;
+        if (ndjson) {
+            // 每個物件之間以換行分隔，不使用預設的空白
+            generator.setRootValueSeparator(null);
+        }
+    }
+
+    // 先寫出中繼資訊並 flush，客戶端在下載與解析開始前就收到第一個 byte
+    public void begin(Map<String, Object> metadata) throws IOException {
+        generator.writeStartObject();
+        if (ndjson) {
+            generator.writeStringField("type", "metadata");
+        }
+        writeFields(metadata);
+        if (ndjson) {
+            endObjectLine();
+        } else {
+            generator.writeArrayFieldStart("sheets");
+        }
+        generator.flush();
+    }
+
+    @Override
+    public void startSheet(int sheetIndex, String sheetName) throws IOException {
+        currentSheetIndex = sheetIndex;
+        generator.writeStartObject();
+        if (ndjson) {
+            generator.writeStringField("type", "sheet");
+            generator.writeNumberField("sheet_index", sheetIndex);
+            generator.writeStringField("sheet_name", sheetName);
+            endObjectLine();
+        } else {
+            generator.writeNumberField("sheet_index", sheetIndex);
+            generator.writeStringField("sheet_name", sheetName);
+            generator.writeArrayFieldStart("rows");
+        }
+    }
+
+    @Override
+    public void row(int rowNum, List<String> cells) throws IOException {
+        if (ndjson) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "row");
+            generator.writeNumberField("sheet_index", currentSheetIndex);
+            generator.writeNumberField("row_num", rowNum);
+            generator.writeFieldName("cells");
+            writeCells(cells);
+            endObjectLine();
+        } else {
+            writeCells(cells);
+        }
+    }
+
+    @Override
+    public void endSheet(List<String> headers, int totalRows) throws IOException {
+        if (ndjson) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "end_sheet");
+            generator.writeNumberField("sheet_index", currentSheetIndex);
+        } else {
+            generator.writeEndArray();
+        }
+        generator.writeFieldName("headers");
+        writeCells(headers);
+        generator.writeNumberField("total_rows", totalRows);
+        generator.writeNumberField("data_rows", totalRows - 1); // 扣除標題行
+        if (ndjson) {
+            endObjectLine();
+        } else {
+            generator.writeEndObject();
+        }
+        generator.flush();
+    }
+
+    public void finish(Map<String, Object> summary) throws IOException {
+        if (ndjson) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "summary");
+        } else {
+            generator.writeEndArray();
+        }
+        writeFields(summary);
+        generator.writeStringField("status", "completed");
+        if (ndjson) {
+            endObjectLine();
+        } else {
+            generator.writeEndObject();
+        }
+        generator.flush();
+    }
+
+    // 回應標頭已送出，錯誤只能寫在串流內容中：json 模式先關閉未完成的陣列與物件再寫入 error
+    public void fail(Exception e) throws IOException {
+        if (ndjson) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "error");
+        } else {
+            JsonStreamContext context = generator.getOutputContext();
+            while (context.getParent() != null && !context.getParent().inRoot()) {
+                if (context.inArray()) {
+                    generator.writeEndArray();
+                } else {
+                    generator.writeEndObject();
+                }
+                context = generator.getOutputContext();
+            }
+        }
+        generator.writeStringField("error_type", e.getClass().getSimpleName());
+        generator.writeStringField("error", String.valueOf(e.getMessage()));
+        generator.writeStringField("status", "error");
+        if (ndjson) {
+            endObjectLine();
+        } else {
+            generator.writeEndObject();
+        }
+        generator.flush();
+    }
+
+    private void writeFields(Map<String, Object> fields) throws IOException {
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            generator.writeObjectField(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void writeCells(List<String> cells) throws IOException {
+        generator.writeStartArray();
+        for (String cell : cells) {
+            generator.writeString(cell);
+        }
+        generator.writeEndArray();
+    }
+
+    // ndjson：結束目前的物件並換行
+    private void endObjectLine() throws IOException {
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
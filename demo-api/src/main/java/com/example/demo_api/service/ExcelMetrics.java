@@ -0,0 +1,130 @@
+package com.example.demo_api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// demo-api 各階段的 Micrometer 指標：建立模板、與 demo-excel 之間的傳輸、解析
+// excel.template.create  啟動時建立標題模板的耗時
+// excel.transfer         呼叫 demo-excel 的耗時（client, endpoint）
+// excel.transfer.bytes   送出 / 收到的位元組數（client, endpoint, direction）
+// excel.read             解析耗時（engine, outcome）
+// excel.read.bytes       解析的檔案大小（engine）
+// excel.read.rows        解析的列數（engine）
+// excel.analyze          結構分析耗時（mode, outcome）
+// excel.cells.written    寫入的儲存格數（operation）
+// excel.client.limit / excel.client.inflight / excel.client.queued  非同步 client 的並行上限、執行中與等待中的請求數（downstream）
+// excel.client.rejected  因並行上限與佇列已滿而拒絕的請求數（downstream, reason）
+@Component
+public class ExcelMetrics {
+
+    public static final String CLIENT_REST_TEMPLATE = "resttemplate";
+    public static final String CLIENT_URL_CONNECTION = "urlconnection";
+    public static final String CLIENT_HTTP_CLIENT = "httpclient";
+
+    public static final String DIRECTION_SENT = "sent";
+    public static final String DIRECTION_RECEIVED = "received";
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public ExcelMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void recordTemplateCreate(Timer.Sample sample, long cellsWritten) {
+        sample.stop(Timer.builder("excel.template.create")
+                .description("Time to build the header-only template in demo-api")
+                .register(meterRegistry));
+        recordCellsWritten("template", cellsWritten);
+    }
+
+    public void recordTransfer(Timer.Sample sample, String client, String endpoint, String outcome) {
+        sample.stop(Timer.builder("excel.transfer")
+                .description("Time spent calling demo-excel, including the response body transfer")
+                .tag("client", client)
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    public void recordTransferBytes(String client, String endpoint, String direction, long bytes) {
+        DistributionSummary.builder("excel.transfer.bytes")
+                .description("Bytes exchanged with demo-excel")
+                .baseUnit("bytes")
+                .tag("client", client)
+                .tag("endpoint", endpoint)
+                .tag("direction", direction)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    public void recordRead(Timer.Sample sample, String engine, String outcome, long bytes, long rows) {
+        sample.stop(Timer.builder("excel.read")
+                .description("Time to parse a workbook")
+                .tag("engine", engine)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        DistributionSummary.builder("excel.read.bytes")
+                .description("Size of parsed workbooks")
+                .baseUnit("bytes")
+                .tag("engine", engine)
+                .register(meterRegistry)
+                .record(bytes);
+        DistributionSummary.builder("excel.read.rows")
+                .description("Rows parsed per workbook")
+                .baseUnit("rows")
+                .tag("engine", engine)
+                .register(meterRegistry)
+                .record(rows);
+    }
+
+    public void recordAnalyze(Timer.Sample sample, String mode, String outcome) {
+        sample.stop(Timer.builder("excel.analyze")
+                .description("Time to analyze workbook structure")
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    public void bindLimiter(AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("excel.client.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit towards the downstream")
+                .tag("downstream", limiter.getName())
+                .register(meterRegistry);
+        Gauge.builder("excel.client.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Downstream calls currently holding a permit")
+                .tag("downstream", limiter.getName())
+                .register(meterRegistry);
+        Gauge.builder("excel.client.queued", limiter, AdaptiveConcurrencyLimiter::getQueued)
+                .description("Calls waiting for a permit")
+                .tag("downstream", limiter.getName())
+                .register(meterRegistry);
+    }
+
+    public void recordRejected(String downstream, String reason) {
+        Counter.builder("excel.client.rejected")
+                .description("Calls rejected because the downstream concurrency limit and queue were full")
+                .tag("downstream", downstream)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void recordCellsWritten(String operation, long cells) {
+        DistributionSummary.builder("excel.cells.written")
+                .description("Cells written per workbook")
+                .baseUnit("cells")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(cells);
+    }
+}
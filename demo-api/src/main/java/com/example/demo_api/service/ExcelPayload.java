@@ -0,0 +1,192 @@
+package com.example.demo_api.service;
+
+import net.openhft.hashing.LongHashFunction;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Excel 檔案內容：小檔案留在記憶體，大檔案溢寫到暫存檔，由 POI 以隨機存取方式讀取 zip，
+// 讀取端不需要持有完整的 byte[]
+public final class ExcelPayload implements AutoCloseable {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int HASH_CHUNK_SIZE = 1024 * 1024;
+
+    private final byte[] data;
+    private final Path file;
+    private final long size;
+    private Long contentHash;
+
+    private ExcelPayload(byte[] data, Path file, long size) {
+        this.data = data;
+        this.file = file;
+        this.size = size;
+    }
+
+    // 包裝已在記憶體中的檔案，不另外複製
+    public static ExcelPayload of(byte[] excelBytes) {
+        return new ExcelPayload(excelBytes, null, excelBytes.length);
+    }
+
+    // 已由 ExcelPayloadSubscriber 緩衝或溢寫完成的內容，spilledFile 由 payload 負責刪除
+    static ExcelPayload buffered(byte[] buffer, int length) {
+        return new ExcelPayload(buffer, null, length);
+    }
+
+    static ExcelPayload spilled(Path spilledFile, long size) {
+        return new ExcelPayload(null, spilledFile, size);
+    }
+
+    // 從回應串流讀取內容：未超過 memoryThreshold 時留在記憶體，超過後改寫入暫存檔；
+    // contentLength 已知且超過門檻時直接以 memory-mapped 方式寫入暫存檔，不經過 heap 緩衝
+    public static ExcelPayload spool(InputStream inputStream, long contentLength, int memoryThreshold) throws IOException {
+        try (InputStream in = inputStream) {
+            if (contentLength > memoryThreshold) {
+                return spoolToMappedFile(in, contentLength);
+            }
+
+            byte[] buffer = new byte[(int) Math.max(contentLength, Math.min(memoryThreshold, COPY_BUFFER_SIZE))];
+            int length = 0;
+            while (true) {
+                if (length == buffer.length) {
+                    // 緩衝區已滿時先確認是否還有資料，剛好讀完就不需要擴充或溢寫
+                    int next = in.read();
+                    if (next == -1) {
+                        break;
+                    }
+                    if (buffer.length >= memoryThreshold) {
+                        return spoolToFile(buffer, length, next, in);
+                    }
+                    buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, memoryThreshold));
+                    buffer[length++] = (byte) next;
+                    continue;
+                }
+                int bytesRead = in.read(buffer, length, buffer.length - length);
+                if (bytesRead == -1) {
+                    break;
+                }
+                length += bytesRead;
+            }
+            // 直接沿用緩衝區，以 size 標示有效長度，不再複製一次
+            return new ExcelPayload(buffer, null, length);
+        }
+    }
+
+    private static ExcelPayload spoolToFile(byte[] head, int headLength, int nextByte, InputStream in) throws IOException {
+        Path tempFile = Files.createTempFile("excel-payload-", ".xlsx");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(head, 0, headLength));
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) nextByte}));
+            long size = headLength + 1L;
+            // 沿用 head 陣列作為複製緩衝區
+            int bytesRead;
+            while ((bytesRead = in.read(head)) != -1) {
+                channel.write(ByteBuffer.wrap(head, 0, bytesRead));
+                size += bytesRead;
+            }
+            return new ExcelPayload(null, tempFile, size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    private static ExcelPayload spoolToMappedFile(InputStream in, long contentLength) throws IOException {
+        Path tempFile = Files.createTempFile("excel-payload-", ".xlsx");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            long size = 0;
+            int bytesRead;
+            while (size < contentLength) {
+                // 單次 mapping 上限為 Integer.MAX_VALUE，依序對應檔案區段
+                long regionSize = Math.min(contentLength - size, Integer.MAX_VALUE);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, size, regionSize);
+                while (region.hasRemaining()
+                        && (bytesRead = in.read(buffer, 0, Math.min(buffer.length, region.remaining()))) != -1) {
+                    region.put(buffer, 0, bytesRead);
+                }
+                size += region.position();
+                if (region.hasRemaining()) {
+                    throw new IOException("Response ended after " + size + " of " + contentLength + " bytes");
+                }
+            }
+            return new ExcelPayload(null, tempFile, size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    // 內容的雜湊：每 1MB 區段計算 XXH3，並以前一段的結果作為下一段的 seed 串接；
+    // 記憶體與暫存檔採用相同的分段方式，同一份內容不論是否溢寫都得到相同的值。第一次呼叫時計算
+    public long contentHash() throws IOException {
+        if (contentHash == null) {
+            long hash = 0;
+            if (file == null) {
+                for (int offset = 0; offset < size; offset += HASH_CHUNK_SIZE) {
+                    hash = LongHashFunction.xx3(hash).hashBytes(data, offset, (int) Math.min(HASH_CHUNK_SIZE, size - offset));
+                }
+            } else {
+                byte[] chunk = new byte[HASH_CHUNK_SIZE];
+                try (InputStream in = Files.newInputStream(file)) {
+                    int length;
+                    while ((length = in.readNBytes(chunk, 0, chunk.length)) > 0) {
+                        hash = LongHashFunction.xx3(hash).hashBytes(chunk, 0, length);
+                    }
+                }
+            }
+            contentHash = hash;
+        }
+        return contentHash;
+    }
+
+    public InputStream openStream() throws IOException {
+        return file != null ? Files.newInputStream(file) : new ByteArrayInputStream(data, 0, (int) size);
+    }
+
+    // 暫存檔以唯讀模式開啟，zip 內容依需要讀取；呼叫端應以 revert() 釋放 package
+    public OPCPackage openPackage() throws IOException, InvalidFormatException {
+        if (file != null) {
+            return OPCPackage.open(file.toFile(), PackageAccess.READ);
+        }
+        return OPCPackage.open(new ByteArrayInputStream(data, 0, (int) size));
+    }
+
+    // 不經過 OPCPackage 直接隨機存取 zip：只讀中央目錄，entry 在開啟時才解壓，供 WorkbookMetadataReader 使用
+    public ZipFile openZipFile() throws IOException {
+        if (file != null) {
+            return new ZipFile(file.toFile());
+        }
+        // spool 沿用的緩衝區可能比內容長，此時內容小於 spool 門檻，複製成本可忽略
+        byte[] bytes = data.length == size ? data : Arrays.copyOf(data, (int) size);
+        return new ZipFile(new SeekableInMemoryByteChannel(bytes));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+}
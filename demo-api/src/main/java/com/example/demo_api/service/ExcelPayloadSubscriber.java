@@ -0,0 +1,125 @@
+package com.example.demo_api.service;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+// HttpClient.sendAsync 的回應 body：與 ExcelPayload.spool 相同的門檻規則，但不佔用執行緒等待 InputStream；
+// 未超過 memoryThreshold 時留在記憶體，超過後把已收到的部分與之後的資料寫入暫存檔。
+// 每處理完一批資料才 request(1)，寫檔跟不上時由 HttpClient 停止讀取 socket（TCP 背壓）
+final class ExcelPayloadSubscriber implements HttpResponse.BodySubscriber<ExcelPayload> {
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final CompletableFuture<ExcelPayload> result = new CompletableFuture<>();
+    private final int memoryThreshold;
+    private Flow.Subscription subscription;
+
+    private byte[] buffer;
+    private int length;
+    private Path file;
+    private FileChannel channel;
+    private long size;
+
+    ExcelPayloadSubscriber(long contentLength, int memoryThreshold) {
+        this.memoryThreshold = memoryThreshold;
+        // 已知長度且不超過門檻時一次配置足夠的緩衝區
+        int initialSize = contentLength >= 0 && contentLength <= memoryThreshold
+                ? (int) contentLength : Math.min(memoryThreshold, INITIAL_BUFFER_SIZE);
+        this.buffer = new byte[Math.max(initialSize, 1)];
+    }
+
+    @Override
+    public CompletionStage<ExcelPayload> getBody() {
+        return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        try {
+            for (ByteBuffer item : items) {
+                write(item);
+            }
+        } catch (IOException | RuntimeException e) {
+            subscription.cancel();
+            fail(e);
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        try {
+            if (channel != null) {
+                channel.close();
+                result.complete(ExcelPayload.spilled(file, size));
+            } else {
+                result.complete(ExcelPayload.buffered(buffer, length));
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void write(ByteBuffer item) throws IOException {
+        int remaining = item.remaining();
+        size += remaining;
+        if (channel == null && length + remaining > memoryThreshold) {
+            // 超過門檻：先寫出已緩衝的內容，之後直接寫檔
+            file = Files.createTempFile("excel-payload-", ".xlsx");
+            channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            writeFully(ByteBuffer.wrap(buffer, 0, length));
+            buffer = null;
+        }
+        if (channel != null) {
+            writeFully(item);
+            return;
+        }
+        if (length + remaining > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.min(Math.max(buffer.length * 2, length + remaining), memoryThreshold));
+        }
+        item.get(buffer, length, remaining);
+        length += remaining;
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private void fail(Throwable throwable) {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throwable.addSuppressed(e);
+        }
+        result.completeExceptionally(throwable);
+    }
+}
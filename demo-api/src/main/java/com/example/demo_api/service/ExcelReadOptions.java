@@ -0,0 +1,57 @@
+package com.example.demo_api.service;
+
+import java.util.List;
+
+// 讀取範圍，由 Spring MVC 從查詢參數綁定，例如 ?sheets=員工資料&columns=ID,姓名&offset=100&limit=50
+// sheets  工作表名稱，未指定時讀取全部
+// columns 依標題列名稱投影的欄位，依指定順序輸出；未指定時輸出全部欄位
+// offset  / limit 資料列（不含標題列）的範圍，limit 未指定時讀到工作表結尾
+// layout  rows（預設，每列一個字串陣列）或 columnar（每欄一個型別化陣列，見 ColumnarSheet）
+public record ExcelReadOptions(List<String> sheets, List<String> columns, Integer offset, Integer limit,
+                               String layout) {
+
+    public static final String LAYOUT_ROWS = "rows";
+    public static final String LAYOUT_COLUMNAR = "columnar";
+
+    public static final ExcelReadOptions ALL = new ExcelReadOptions(null, null, null, null, null);
+
+    public ExcelReadOptions {
+        sheets = sheets == null || sheets.isEmpty() ? null : List.copyOf(sheets);
+        columns = columns == null || columns.isEmpty() ? null : List.copyOf(columns);
+        offset = offset == null ? 0 : Math.max(0, offset);
+        limit = limit == null || limit < 0 ? null : limit;
+        layout = LAYOUT_COLUMNAR.equalsIgnoreCase(layout) ? LAYOUT_COLUMNAR : LAYOUT_ROWS;
+    }
+
+    // 只看讀取範圍，不含 layout
+    public boolean isAll() {
+        return sheets == null && columns == null && offset == 0 && limit == null;
+    }
+
+    public boolean isColumnar() {
+        return LAYOUT_COLUMNAR.equals(layout);
+    }
+
+    public boolean includesSheet(String sheetName) {
+        return sheets == null || sheets.contains(sheetName);
+    }
+
+    public boolean isProjected() {
+        return columns != null;
+    }
+
+    // dataRowIndex 為資料列的順序（標題列之後從 0 開始）
+    public boolean includesDataRow(int dataRowIndex) {
+        return dataRowIndex >= offset && !isPastLimit(dataRowIndex);
+    }
+
+    public boolean isPastLimit(int dataRowIndex) {
+        return limit != null && dataRowIndex >= (long) offset + limit;
+    }
+
+    // 解析結果快取 key 的後綴，以預設 layout 讀取全部時為空字串
+    public String cacheKey() {
+        String range = isAll() ? "" : ":" + sheets + ":" + columns + ":" + offset + ":" + limit;
+        return isColumnar() ? range + ":" + layout : range;
+    }
+}
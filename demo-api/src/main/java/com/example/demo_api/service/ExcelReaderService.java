@@ -1,45 +1,430 @@
 package com.example.demo_api.service;
 
+import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.util.ZipInputStreamZipEntrySource;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
-import java.io.ByteArrayInputStream;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 @Service
 public class ExcelReaderService {
     
+    // 讀取引擎：dom = XSSFWorkbook 全量載入，sax = XSSFReader 事件串流，
+    // parallel = 各工作表平行 SAX 解析，auto = 依檔案大小自動切換
+    public static final String ENGINE_DOM = "dom";
+    public static final String ENGINE_SAX = "sax";
+    public static final String ENGINE_PARALLEL = "parallel";
+    
+    // SAX / parallel 模式的 shared strings 保存方式：memory = 全部載入 heap，mapped = memory-mapped 暫存檔 + LRU，
+    // auto = sharedStrings.xml 解壓後大於門檻時使用 mapped
+    public static final String SHARED_STRINGS_MEMORY = "memory";
+    public static final String SHARED_STRINGS_MAPPED = "mapped";
+    public static final String SHARED_STRINGS_AUTO = "auto";
+    public static final String ENGINE_AUTO = "auto";
+    
+    // 結構分析方式：full = 載入 XSSFWorkbook 計算實際列數，metadata = 只讀 workbook.xml 與各工作表的 <dimension>
+    public static final String ANALYZE_FULL = "full";
+    public static final String ANALYZE_METADATA = "metadata";
+    
+    // 超過此大小的檔案在 auto 模式下改走 SAX 事件串流
+    @Value("${excel.reader.streaming-threshold-bytes:5242880}")
+    private long streamingThresholdBytes;
+    
+    // 解壓後超過此大小的 zip entry 改存暫存檔，避免 sheet XML 整份留在 heap
+    @Value("${excel.reader.zip-entry-temp-file-threshold-bytes:16777216}")
+    private int zipEntryTempFileThresholdBytes;
+    
+    // 從 HTTP 回應串流建立 payload：超過此大小改寫入暫存檔，不在 heap 保留完整檔案
+    @Value("${excel.reader.spool-memory-threshold-bytes:2097152}")
+    private int spoolMemoryThresholdBytes;
+    
+    @Value("${excel.reader.shared-strings.store:auto}")
+    private String sharedStringsStore;
+    
+    @Value("${excel.reader.shared-strings.mapped-threshold-bytes:8388608}")
+    private long sharedStringsMappedThresholdBytes;
+    
+    // mapped 模式下每份檔案在 heap 保留的常用字串數上限
+    @Value("${excel.reader.shared-strings.cache-size:10000}")
+    private int sharedStringsCacheSize;
+    
+    private final ExcelMetrics excelMetrics;
+    private final ParsedResultCache parsedResultCache;
+    private final SheetParsePool sheetParsePool;
+    
+    @Autowired
+    public ExcelReaderService(ExcelMetrics excelMetrics, ParsedResultCache parsedResultCache,
+                              SheetParsePool sheetParsePool) {
+        this.excelMetrics = excelMetrics;
+        this.parsedResultCache = parsedResultCache;
+        this.sheetParsePool = sheetParsePool;
+    }
+    
+    @PostConstruct
+    void configurePackageSpooling() {
+        ZipInputStreamZipEntrySource.setThresholdBytesForTempFiles(zipEntryTempFileThresholdBytes);
+    }
+    
+    // contentLength 未知時傳入 -1
+    public ExcelPayload spool(InputStream inputStream, long contentLength) throws IOException {
+        return ExcelPayload.spool(inputStream, contentLength, spoolMemoryThresholdBytes);
+    }
+    
     public Map<String, Object> readExcelData(byte[] excelBytes) {
+        return readExcelData(excelBytes, ENGINE_AUTO);
+    }
+    
+    public Map<String, Object> readExcelData(byte[] excelBytes, String engine) {
+        return readExcelData(ExcelPayload.of(excelBytes), engine, ExcelReadOptions.ALL);
+    }
+    
+    public Map<String, Object> readExcelData(byte[] excelBytes, String engine, ExcelReadOptions options) {
+        return readExcelData(ExcelPayload.of(excelBytes), engine, options);
+    }
+    
+    public Map<String, Object> readExcelData(ExcelPayload payload, String engine) {
+        return readExcelData(payload, engine, ExcelReadOptions.ALL);
+    }
+    
+    // 相同內容、引擎與讀取範圍的解析結果由 ParsedResultCache 回傳，不再經過 POI
+    public Map<String, Object> readExcelData(ExcelPayload payload, String engine, ExcelReadOptions options) {
+        String resolvedEngine = resolveEngine(engine, payload.size());
+        return parsedResultCache.get(payload, "read_" + resolvedEngine + options.cacheKey(), () -> {
+            Timer.Sample sample = excelMetrics.start();
+            Map<String, Object> result = switch (resolvedEngine) {
+                case ENGINE_SAX -> readExcelDataStreaming(payload, options);
+                case ENGINE_PARALLEL -> readExcelDataParallel(payload, options);
+                default -> readExcelDataDom(payload, options);
+            };
+            excelMetrics.recordRead(sample, resolvedEngine, String.valueOf(result.get("status")),
+                    payload.size(), countRows(result));
+            return result;
+        });
+    }
+    
+    private Map<String, Object> readExcelDataDom(ExcelPayload payload, ExcelReadOptions options) {
         Map<String, Object> result = new HashMap<>();
         
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(excelBytes);
-             Workbook workbook = new XSSFWorkbook(inputStream)) {
+        try {
+            OPCPackage pkg = payload.openPackage();
+            try {
+                Workbook workbook = new XSSFWorkbook(pkg);
+                
+                result.put("service", "demo-api");
+                result.put("operation", "read_excel_with_poi");
+                result.put("timestamp", LocalDateTime.now());
+                result.put("read_engine", ENGINE_DOM);
+                result.put("workbook_type", workbook.getClass().getSimpleName());
+                List<Map<String, Object>> sheetsData = new ArrayList<>();
+            
+                // 讀取所有（或指定的）工作表
+                for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                    Sheet sheet = workbook.getSheetAt(i);
+                    if (!options.includesSheet(sheet.getSheetName())) {
+                        continue;
+                    }
+                    Map<String, Object> sheetInfo = options.isColumnar()
+                            ? readSheetDataColumnar(sheet, options)
+                            : readSheetData(sheet, options);
+                    sheetsData.add(sheetInfo);
+                }
+            
+                result.put("number_of_sheets", sheetsData.size());
+                result.put("sheets", sheetsData);
+                result.put("status", "success");
+            } finally {
+                // 唯讀解析，不回寫 package
+                pkg.revert();
+            }
             
+        } catch (IOException | InvalidFormatException e) {
             result.put("service", "demo-api");
             result.put("operation", "read_excel_with_poi");
             result.put("timestamp", LocalDateTime.now());
-            result.put("workbook_type", workbook.getClass().getSimpleName());
-            result.put("number_of_sheets", workbook.getNumberOfSheets());
-            
-            List<Map<String, Object>> sheetsData = new ArrayList<>();
+            result.put("read_engine", ENGINE_DOM);
+            result.put("error", "Failed to read Excel: " + e.getMessage());
+            result.put("status", "error");
+        }
+        
+        return result;
+    }
+    
+    // 各工作表 total_rows 的總和，解析失敗時為 0
+    private long countRows(Map<String, Object> result) {
+        long rows = 0;
+        if (result.get("sheets") instanceof List<?> sheets) {
+            for (Object sheet : sheets) {
+                if (sheet instanceof Map<?, ?> sheetData && sheetData.get("total_rows") instanceof Integer totalRows) {
+                    rows += totalRows;
+                }
+            }
+        }
+        return rows;
+    }
+    
+    // 依請求指定的引擎與檔案大小決定實際使用的讀取方式
+    String resolveEngine(String engine, long fileSize) {
+        if (ENGINE_DOM.equalsIgnoreCase(engine)) {
+            return ENGINE_DOM;
+        }
+        if (ENGINE_SAX.equalsIgnoreCase(engine)) {
+            return ENGINE_SAX;
+        }
+        if (ENGINE_PARALLEL.equalsIgnoreCase(engine)) {
+            return ENGINE_PARALLEL;
+        }
+        return fileSize > streamingThresholdBytes ? ENGINE_SAX : ENGINE_DOM;
+    }
+    
+    // SAX 事件模式：XSSFReader 逐一串流每個 sheet 的 XML，heap 用量不隨列數成長
+    private Map<String, Object> readExcelDataStreaming(ExcelPayload payload, ExcelReadOptions options) {
+        Map<String, Object> result = new HashMap<>();
+        
+        try {
+            OPCPackage pkg = payload.openPackage();
+            try {
+                List<Map<String, Object>> sheetsData = new ArrayList<>();
+                parseSheets(pkg, payload.size(), options, new SheetVisitor<>() {
+                    @Override
+                    public SheetCollector startSheet(int sheetIndex, String sheetName) {
+                        return newCollector(sheetName, options);
+                    }
+                    
+                    @Override
+                    public void endSheet(SheetCollector collector) {
+                        sheetsData.add(collector.toSheetData());
+                    }
+                });
+                
+                result.put("service", "demo-api");
+                result.put("operation", "read_excel_with_poi");
+                result.put("timestamp", LocalDateTime.now());
+                result.put("read_engine", ENGINE_SAX);
+                result.put("workbook_type", XSSFReader.class.getSimpleName());
+                result.put("number_of_sheets", sheetsData.size());
+                result.put("sheets", sheetsData);
+                result.put("status", "success");
+            } finally {
+                // 唯讀解析，不回寫 package
+                pkg.revert();
+            }
             
-            // 讀取所有工作表
-            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
-                Sheet sheet = workbook.getSheetAt(i);
-                Map<String, Object> sheetInfo = readSheetData(sheet);
-                sheetsData.add(sheetInfo);
+        } catch (IOException | OpenXML4JException | SAXException | ParserConfigurationException e) {
+            result.put("service", "demo-api");
+            result.put("operation", "read_excel_with_poi");
+            result.put("timestamp", LocalDateTime.now());
+            result.put("read_engine", ENGINE_SAX);
+            result.put("error", "Failed to read Excel: " + e.getMessage());
+            result.put("status", "error");
+        }
+        
+        return result;
+    }
+    
+    public void streamExcelData(ExcelPayload payload, ExcelRowCallback callback) throws IOException {
+        streamExcelData(payload, ExcelReadOptions.ALL, callback);
+    }
+    
+    // 逐列串流解析：每列解析完即交給 callback，不建立任何結果集合；解析失敗或 callback 寫出失敗時拋出 IOException。
+    // 逐列輸出固定為字串列，不使用 options.layout()
+    public void streamExcelData(ExcelPayload payload, ExcelReadOptions options, ExcelRowCallback callback)
+            throws IOException {
+        Timer.Sample sample = excelMetrics.start();
+        long[] rows = new long[1];
+        String outcome = "error";
+        try {
+            OPCPackage pkg = payload.openPackage();
+            try {
+                parseSheets(pkg, payload.size(), options, new SheetVisitor<StreamingSheetHandler>() {
+                    @Override
+                    public StreamingSheetHandler startSheet(int sheetIndex, String sheetName) throws IOException {
+                        callback.startSheet(sheetIndex, sheetName);
+                        return new StreamingSheetHandler(sheetName, callback, options);
+                    }
+                    
+                    @Override
+                    public void endSheet(StreamingSheetHandler handler) throws IOException {
+                        rows[0] += handler.getRowCount();
+                        callback.endSheet(handler.getHeaders(), handler.getRowCount());
+                    }
+                });
+                outcome = "success";
+            } finally {
+                pkg.revert();
             }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Failed to read Excel: " + e.getMessage(), e);
+        } finally {
+            excelMetrics.recordRead(sample, ENGINE_SAX, outcome, payload.size(), rows[0]);
+        }
+    }
+    
+    // 以 SAX 依序解析每個（或指定的）工作表，各工作表的收集器由 visitor 建立與收尾；sheetIndex 為工作表在活頁簿中的位置
+    private <C extends SheetCollector> void parseSheets(OPCPackage pkg, long fileSize, ExcelReadOptions options,
+                                                        SheetVisitor<C> visitor)
+            throws IOException, OpenXML4JException, SAXException, ParserConfigurationException {
+        XSSFReader reader = new XSSFReader(pkg);
+        SharedStrings sharedStrings = openSharedStrings(pkg, fileSize);
+        try {
+            StylesTable styles = reader.getStylesTable();
+            DataFormatter formatter = new CellTextFormatter();
             
-            result.put("sheets", sheetsData);
-            result.put("status", "success");
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            int sheetIndex = 0;
+            while (sheets.hasNext()) {
+                try (InputStream sheetStream = sheets.next()) {
+                    int index = sheetIndex++;
+                    if (!options.includesSheet(sheets.getSheetName())) {
+                        // 未指定的工作表不解析，串流直接關閉
+                        continue;
+                    }
+                    C collector = visitor.startSheet(index, sheets.getSheetName());
+                    parseSheet(sheetStream, collector, styles, sharedStrings, formatter);
+                    visitor.endSheet(collector);
+                }
+            }
+        } finally {
+            closeSharedStrings(sharedStrings);
+        }
+    }
+    
+    // 依 excel.reader.shared-strings.store 建立 shared strings 表，用完須以 closeSharedStrings 釋放
+    private SharedStrings openSharedStrings(OPCPackage pkg, long fileSize)
+            throws IOException, SAXException, ParserConfigurationException {
+        List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+        if (!parts.isEmpty() && useMappedSharedStrings(parts.get(0), fileSize)) {
+            return MappedSharedStringsTable.load(parts.get(0), sharedStringsCacheSize);
+        }
+        return new ReadOnlySharedStringsTable(pkg, false);
+    }
+    
+    // 從記憶體開啟的 package 不知道 part 解壓後的大小（-1），改以檔案大小作為下限估計
+    private boolean useMappedSharedStrings(PackagePart part, long fileSize) {
+        if (SHARED_STRINGS_MAPPED.equalsIgnoreCase(sharedStringsStore)) {
+            return true;
+        }
+        if (SHARED_STRINGS_AUTO.equalsIgnoreCase(sharedStringsStore)) {
+            long size = part.getSize() >= 0 ? part.getSize() : fileSize;
+            return size > sharedStringsMappedThresholdBytes;
+        }
+        return false;
+    }
+    
+    // mapped 模式會刪除暫存檔，memory 模式不需要釋放
+    private void closeSharedStrings(SharedStrings sharedStrings) throws IOException {
+        if (sharedStrings instanceof MappedSharedStringsTable mapped) {
+            mapped.close();
+        }
+    }
+    
+    // rows layout 為 StreamingSheetHandler（字串列），columnar layout 為 ColumnarSheetReader（型別化欄位）
+    private SheetCollector newCollector(String sheetName, ExcelReadOptions options) {
+        return options.isColumnar()
+                ? new ColumnarSheetReader(sheetName, options)
+                : new StreamingSheetHandler(sheetName, null, options);
+    }
+    
+    private void parseSheet(InputStream sheetStream, SheetCollector collector, StylesTable styles,
+                            SharedStrings sharedStrings, DataFormatter formatter)
+            throws IOException, SAXException, ParserConfigurationException {
+        XMLReader parser = XMLHelper.newXMLReader();
+        ContentHandler sheetHandler = collector.newContentHandler(styles, sharedStrings, formatter);
+        // 有指定欄位或列範圍時，範圍外的元素在進入收集器前就被略過
+        parser.setContentHandler(collector.getOptions().isAll() ? sheetHandler : new SheetReadFilter(sheetHandler, collector));
+        try {
+            parser.parse(new InputSource(sheetStream));
+        } catch (SheetReadFilter.LimitReachedException e) {
+            // 已讀完指定範圍，剩餘的 sheet XML 不再讀取
+        }
+    }
+    
+    // 平行 SAX 模式：shared strings 與 styles 只載入一次（解析期間唯讀，MappedSharedStringsTable 可多執行緒讀取），各工作表的 XML part
+    // 由 SheetParsePool 的工作執行緒各自開啟、各自建立 SAX parser，結果依工作表順序合併
+    private Map<String, Object> readExcelDataParallel(ExcelPayload payload, ExcelReadOptions options) {
+        Map<String, Object> result = new HashMap<>();
+        
+        try {
+            OPCPackage pkg = payload.openPackage();
+            try {
+                XSSFReader reader = new XSSFReader(pkg);
+                StylesTable styles = reader.getStylesTable();
+                
+                List<String> sheetNames = new ArrayList<>();
+                List<PackagePart> sheetParts = new ArrayList<>();
+                XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+                while (sheets.hasNext()) {
+                    // next() 會開啟 part 的串流；這裡只記錄 part，由工作執行緒各自重新開啟
+                    sheets.next().close();
+                    if (!options.includesSheet(sheets.getSheetName())) {
+                        continue;
+                    }
+                    sheetNames.add(sheets.getSheetName());
+                    sheetParts.add(sheets.getSheetPart());
+                }
+                
+                int parallelism = sheetParsePool.parallelismFor(sheetParts.size());
+                List<Map<String, Object>> sheetsData;
+                SharedStrings sharedStrings = openSharedStrings(pkg, payload.size());
+                try {
+                    sheetsData = parseSheetsParallel(sheetNames, sheetParts, styles, sharedStrings, options, parallelism);
+                } finally {
+                    closeSharedStrings(sharedStrings);
+                }
+                
+                result.put("service", "demo-api");
+                result.put("operation", "read_excel_with_poi");
+                result.put("timestamp", LocalDateTime.now());
+                result.put("read_engine", ENGINE_PARALLEL);
+                result.put("workbook_type", XSSFReader.class.getSimpleName());
+                result.put("parallelism", parallelism);
+                result.put("number_of_sheets", sheetsData.size());
+                result.put("sheets", sheetsData);
+                result.put("status", "success");
+            } finally {
+                pkg.revert();
+            }
             
-        } catch (IOException e) {
+        } catch (IOException | OpenXML4JException | SAXException | ParserConfigurationException e) {
             result.put("service", "demo-api");
             result.put("operation", "read_excel_with_poi");
             result.put("timestamp", LocalDateTime.now());
+            result.put("read_engine", ENGINE_PARALLEL);
             result.put("error", "Failed to read Excel: " + e.getMessage());
             result.put("status", "error");
         }
@@ -47,7 +432,104 @@ public class ExcelReaderService {
         return result;
     }
     
-    private Map<String, Object> readSheetData(Sheet sheet) {
+    // 啟動 parallelism 個 worker 依序領取下一個工作表，其中一個在請求執行緒上執行；任一工作表失敗後其餘 worker 不再領取新工作表。
+    // 請求執行緒的 worker 結束時所有工作表都已被領取，還排在佇列中（執行緒池忙碌）的 worker 直接取消、不等待，
+    // 只等已開始執行的 worker；佇列已滿無法提交時不再增加 worker，由請求執行緒自行解析
+    private List<Map<String, Object>> parseSheetsParallel(List<String> sheetNames, List<PackagePart> sheetParts,
+                                                          StylesTable styles, SharedStrings sharedStrings,
+                                                          ExcelReadOptions options, int parallelism)
+            throws IOException, SAXException, ParserConfigurationException {
+        AtomicReferenceArray<Map<String, Object>> sheetResults = new AtomicReferenceArray<>(sheetParts.size());
+        AtomicInteger nextSheet = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        
+        Callable<Void> worker = () -> {
+            // DataFormatter 內部快取格式物件，不可跨執行緒共用
+            DataFormatter formatter = new CellTextFormatter();
+            int sheetIndex;
+            while (!failed.get() && (sheetIndex = nextSheet.getAndIncrement()) < sheetParts.size()) {
+                SheetCollector collector = newCollector(sheetNames.get(sheetIndex), options);
+                try (InputStream sheetStream = sheetParts.get(sheetIndex).getInputStream()) {
+                    parseSheet(sheetStream, collector, styles, sharedStrings, formatter);
+                } catch (Exception e) {
+                    failed.set(true);
+                    throw e;
+                }
+                sheetResults.set(sheetIndex, collector.toSheetData());
+            }
+            return null;
+        };
+        
+        List<Future<Void>> futures = new ArrayList<>();
+        // 每個提交的 worker 開始執行或被請求執行緒取消時設為 true，兩者只有一方成功
+        List<AtomicBoolean> claimed = new ArrayList<>();
+        for (int i = 1; i < parallelism; i++) {
+            AtomicBoolean started = new AtomicBoolean();
+            try {
+                futures.add(sheetParsePool.submit(() -> started.compareAndSet(false, true) ? worker.call() : null));
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+            claimed.add(started);
+        }
+        
+        Throwable failure = null;
+        try {
+            worker.call();
+        } catch (Exception e) {
+            failure = e;
+        }
+        // 尚未開始的 worker 取消；已開始的等它結束後才回傳，呼叫端隨後會關閉 package
+        for (int i = 0; i < futures.size(); i++) {
+            Future<Void> future = futures.get(i);
+            if (claimed.get(i).compareAndSet(false, true)) {
+                future.cancel(false);
+                continue;
+            }
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failure = failure != null ? failure : e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.set(true);
+                failure = failure != null ? failure : new InterruptedIOException("Interrupted while parsing sheets");
+            }
+        }
+        
+        if (failure instanceof IOException e) {
+            throw e;
+        }
+        if (failure instanceof SAXException e) {
+            throw e;
+        }
+        if (failure instanceof ParserConfigurationException e) {
+            throw e;
+        }
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+        if (failure instanceof Error e) {
+            throw e;
+        }
+        if (failure != null) {
+            throw new IOException(failure);
+        }
+        
+        List<Map<String, Object>> sheetsData = new ArrayList<>(sheetResults.length());
+        for (int i = 0; i < sheetResults.length(); i++) {
+            sheetsData.add(sheetResults.get(i));
+        }
+        return sheetsData;
+    }
+    
+    private interface SheetVisitor<C extends SheetCollector> {
+        C startSheet(int sheetIndex, String sheetName) throws IOException;
+        
+        void endSheet(C collector) throws IOException;
+    }
+    
+    private Map<String, Object> readSheetData(Sheet sheet, ExcelReadOptions options) {
         Map<String, Object> sheetData = new HashMap<>();
         
         sheetData.put("sheet_name", sheet.getSheetName());
@@ -57,6 +539,9 @@ public class ExcelReaderService {
         
         List<List<String>> rows = new ArrayList<>();
         List<String> headers = new ArrayList<>();
+        // 欄位投影：標題列之後只轉換這些欄位，依序為輸出欄位對應的原始欄位索引
+        int[] projectedColumns = null;
+        int dataRowIndex = 0;
         
         // 讀取所有行
         for (Row row : sheet) {
@@ -69,10 +554,26 @@ public class ExcelReaderService {
                     headers.add(cellValue);
                     rowData.add(cellValue);
                 }
+                if (options.isProjected()) {
+                    projectedColumns = projectColumns(headers, options.columns());
+                    headers = new ArrayList<>();
+                    for (int columnIndex : projectedColumns) {
+                        headers.add(rowData.get(columnIndex));
+                    }
+                    rowData = new ArrayList<>(headers);
+                }
             } else {
+                // 範圍外的數據行不轉換任何儲存格，超過 limit 後不再往下讀
+                int index = dataRowIndex++;
+                if (options.isPastLimit(index)) {
+                    break;
+                }
+                if (!options.includesDataRow(index)) {
+                    continue;
+                }
                 // 數據行
                 for (int cellIndex = 0; cellIndex < headers.size(); cellIndex++) {
-                    Cell cell = row.getCell(cellIndex);
+                    Cell cell = row.getCell(projectedColumns != null ? projectedColumns[cellIndex] : cellIndex);
                     String cellValue = getCellValueAsString(cell);
                     rowData.add(cellValue);
                 }
@@ -85,6 +586,10 @@ public class ExcelReaderService {
         sheetData.put("total_rows", rows.size());
         sheetData.put("data_rows", rows.size() - 1); // 扣除標題行
         sheetData.put("rows", rows);
+        if (!options.isAll()) {
+            sheetData.put("offset", options.offset());
+            sheetData.put("limit", options.limit());
+        }
         
         // 統計數據
         if (rows.size() > 1) {
@@ -94,6 +599,72 @@ public class ExcelReaderService {
         return sheetData;
     }
     
+    // layout=columnar：標題列之後的儲存格依 CellType 寫入型別化欄位，數值保留完整精度；
+    // 公式儲存格取快取的計算結果，與 SAX 的 ColumnarSheetReader 一致
+    private Map<String, Object> readSheetDataColumnar(Sheet sheet, ExcelReadOptions options) {
+        ColumnarSheet columnar = new ColumnarSheet();
+        int dataRowIndex = 0;
+        
+        for (Row row : sheet) {
+            if (row.getRowNum() == 0) {
+                List<String> headers = new ArrayList<>();
+                for (Cell cell : row) {
+                    headers.add(getCellValueAsString(cell));
+                }
+                columnar.setHeaders(headers, options);
+                continue;
+            }
+            int index = dataRowIndex++;
+            if (options.isPastLimit(index)) {
+                break;
+            }
+            if (!options.includesDataRow(index)) {
+                continue;
+            }
+            for (Cell cell : row) {
+                TypedColumn column = columnar.column(cell.getColumnIndex());
+                if (column != null) {
+                    addCellValue(column, columnar.currentRow(), cell);
+                }
+            }
+            columnar.endRow();
+        }
+        
+        return columnar.toSheetData(sheet.getSheetName(), options);
+    }
+    
+    private void addCellValue(TypedColumn column, int row, Cell cell) {
+        CellType cellType = cell.getCellType() == CellType.FORMULA ? cell.getCachedFormulaResultType() : cell.getCellType();
+        switch (cellType) {
+            case STRING -> column.addString(row, cell.getStringCellValue());
+            case NUMERIC -> {
+                if (DateUtil.isCellDateFormatted(cell)) {
+                    column.addDate(row, cell.getNumericCellValue());
+                } else {
+                    column.addNumber(row, cell.getNumericCellValue());
+                }
+            }
+            case BOOLEAN -> column.addBoolean(row, cell.getBooleanCellValue());
+            case ERROR -> column.addString(row, FormulaError.forInt(cell.getErrorCellValue()).getString());
+            default -> {
+                // BLANK
+            }
+        }
+    }
+    
+    // 依指定順序找出標題名稱對應的欄位索引，找不到或重複的名稱略過（與 StreamingSheetHandler 一致）
+    private int[] projectColumns(List<String> headers, List<String> columns) {
+        List<Integer> indexes = new ArrayList<>();
+        for (String column : columns) {
+            int columnIndex = headers.indexOf(column);
+            if (columnIndex >= 0 && !indexes.contains(columnIndex)) {
+                indexes.add(columnIndex);
+            }
+        }
+        return indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+    
+    // 與 sax / parallel 模式（XSSFSheetXMLHandler + CellTextFormatter）輸出相同的文字
     private String getCellValueAsString(Cell cell) {
         if (cell == null) {
             return "";
@@ -103,13 +674,14 @@ public class ExcelReaderService {
             case STRING:
                 return cell.getStringCellValue();
             case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toString();
-                } else {
-                    return String.valueOf((long) cell.getNumericCellValue());
-                }
+                // 小數不截斷；日期輸出 ISO 格式，與 columnar layout 相同
+                CellStyle style = cell.getCellStyle();
+                return CellTextFormatter.numericText(cell.getNumericCellValue(), style.getDataFormat(),
+                        style.getDataFormatString());
             case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
+                return cell.getBooleanCellValue() ? "TRUE" : "FALSE";
+            case ERROR:
+                return "ERROR:" + FormulaError.forInt(cell.getErrorCellValue()).getString();
             case FORMULA:
                 return cell.getCellFormula();
             case BLANK:
@@ -120,51 +692,111 @@ public class ExcelReaderService {
     }
     
     public Map<String, Object> analyzeExcelStructure(byte[] excelBytes) {
+        return analyzeExcelStructure(ExcelPayload.of(excelBytes));
+    }
+    
+    public Map<String, Object> analyzeExcelStructure(ExcelPayload payload) {
+        return parsedResultCache.get(payload, "analyze", () -> {
+            Timer.Sample sample = excelMetrics.start();
+            Map<String, Object> analysis = analyzeWorkbook(payload);
+            excelMetrics.recordAnalyze(sample, ANALYZE_FULL, String.valueOf(analysis.get("status")));
+            return analysis;
+        });
+    }
+    
+    public Map<String, Object> analyzeExcelStructure(ExcelPayload payload, String mode) {
+        return ANALYZE_METADATA.equalsIgnoreCase(mode) ? analyzeExcelMetadata(payload) : analyzeExcelStructure(payload);
+    }
+    
+    // 上傳前的預檢：只讀 zip 目錄、workbook.xml 與各工作表開頭的 <dimension>，不解壓 shared strings 與儲存格資料，
+    // 耗時與檔案大小無關。比計算快取 key 的內容雜湊還快，因此不經過 ParsedResultCache
+    public Map<String, Object> analyzeExcelMetadata(ExcelPayload payload) {
+        Timer.Sample sample = excelMetrics.start();
         Map<String, Object> analysis = new HashMap<>();
+        analysis.put("service", "demo-api");
+        analysis.put("operation", "analyze_excel_metadata");
+        analysis.put("timestamp", LocalDateTime.now());
+        analysis.put("analysis_mode", ANALYZE_METADATA);
+        analysis.put("file_size_bytes", payload.size());
+        analysis.put("file_size_kb", String.format("%.2f KB", payload.size() / 1024.0));
         
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(excelBytes);
-             Workbook workbook = new XSSFWorkbook(inputStream)) {
+        try (ZipFile zip = payload.openZipFile()) {
+            List<Map<String, Object>> sheetAnalysis = WorkbookMetadataReader.readSheets(zip);
+            long totalCells = 0;
+            long totalRows = 0;
+            for (Map<String, Object> sheetInfo : sheetAnalysis) {
+                totalCells += (long) sheetInfo.get("estimated_cells");
+                totalRows += (int) sheetInfo.get("rows");
+            }
             
-            analysis.put("service", "demo-api");
-            analysis.put("operation", "analyze_excel_structure");
-            analysis.put("timestamp", LocalDateTime.now());
-            analysis.put("file_size_bytes", excelBytes.length);
-            analysis.put("file_size_kb", String.format("%.2f KB", excelBytes.length / 1024.0));
-            analysis.put("workbook_type", workbook.getClass().getSimpleName());
+            analysis.put("total_sheets", sheetAnalysis.size());
+            analysis.put("total_rows", totalRows);
+            analysis.put("estimated_total_cells", totalCells);
+            analysis.put("sheets_analysis", sheetAnalysis);
+            // 預估 auto 模式會使用的讀取引擎
+            analysis.put("suggested_engine", resolveEngine(ENGINE_AUTO, payload.size()));
+            analysis.put("status", "success");
+        } catch (IOException | XMLStreamException | IllegalArgumentException e) {
+            analysis.put("error", "Failed to analyze Excel: " + e.getMessage());
+            analysis.put("status", "error");
+        }
+        
+        excelMetrics.recordAnalyze(sample, ANALYZE_METADATA, String.valueOf(analysis.get("status")));
+        return analysis;
+    }
+    
+    private Map<String, Object> analyzeWorkbook(ExcelPayload payload) {
+        Map<String, Object> analysis = new HashMap<>();
+        
+        try {
+            OPCPackage pkg = payload.openPackage();
+            try {
+                Workbook workbook = new XSSFWorkbook(pkg);
+                
+                analysis.put("service", "demo-api");
+                analysis.put("operation", "analyze_excel_structure");
+                analysis.put("timestamp", LocalDateTime.now());
+                analysis.put("analysis_mode", ANALYZE_FULL);
+                analysis.put("file_size_bytes", payload.size());
+                analysis.put("file_size_kb", String.format("%.2f KB", payload.size() / 1024.0));
+                analysis.put("workbook_type", workbook.getClass().getSimpleName());
             
-            List<Map<String, Object>> sheetAnalysis = new ArrayList<>();
-            int totalCells = 0;
-            int totalRows = 0;
+                List<Map<String, Object>> sheetAnalysis = new ArrayList<>();
+                int totalCells = 0;
+                int totalRows = 0;
             
-            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
-                Sheet sheet = workbook.getSheetAt(i);
-                Map<String, Object> sheetInfo = new HashMap<>();
+                for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                    Sheet sheet = workbook.getSheetAt(i);
+                    Map<String, Object> sheetInfo = new HashMap<>();
                 
-                sheetInfo.put("index", i);
-                sheetInfo.put("name", sheet.getSheetName());
-                sheetInfo.put("rows", sheet.getPhysicalNumberOfRows());
+                    sheetInfo.put("index", i);
+                    sheetInfo.put("name", sheet.getSheetName());
+                    sheetInfo.put("rows", sheet.getPhysicalNumberOfRows());
                 
-                // 計算欄位數（以第一行為準）
-                Row firstRow = sheet.getRow(sheet.getFirstRowNum());
-                int columns = firstRow != null ? firstRow.getPhysicalNumberOfCells() : 0;
-                sheetInfo.put("columns", columns);
+                    // 計算欄位數（以第一行為準）
+                    Row firstRow = sheet.getRow(sheet.getFirstRowNum());
+                    int columns = firstRow != null ? firstRow.getPhysicalNumberOfCells() : 0;
+                    sheetInfo.put("columns", columns);
                 
-                int sheetCells = sheet.getPhysicalNumberOfRows() * columns;
-                sheetInfo.put("estimated_cells", sheetCells);
+                    int sheetCells = sheet.getPhysicalNumberOfRows() * columns;
+                    sheetInfo.put("estimated_cells", sheetCells);
                 
-                totalCells += sheetCells;
-                totalRows += sheet.getPhysicalNumberOfRows();
+                    totalCells += sheetCells;
+                    totalRows += sheet.getPhysicalNumberOfRows();
                 
-                sheetAnalysis.add(sheetInfo);
-            }
+                    sheetAnalysis.add(sheetInfo);
+                }
             
-            analysis.put("total_sheets", workbook.getNumberOfSheets());
-            analysis.put("total_rows", totalRows);
-            analysis.put("estimated_total_cells", totalCells);
-            analysis.put("sheets_analysis", sheetAnalysis);
-            analysis.put("status", "success");
+                analysis.put("total_sheets", workbook.getNumberOfSheets());
+                analysis.put("total_rows", totalRows);
+                analysis.put("estimated_total_cells", totalCells);
+                analysis.put("sheets_analysis", sheetAnalysis);
+                analysis.put("status", "success");
+            } finally {
+                pkg.revert();
+            }
             
-        } catch (IOException e) {
+        } catch (IOException | InvalidFormatException e) {
             analysis.put("service", "demo-api");
             analysis.put("operation", "analyze_excel_structure");
             analysis.put("timestamp", LocalDateTime.now());
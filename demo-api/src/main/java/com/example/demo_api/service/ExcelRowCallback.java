@@ -0,0 +1,15 @@
+package com.example.demo_api.service;
+
+import java.io.IOException;
+import java.util.List;
+
+// SAX 事件模式的逐列回呼：每解析完一列就交給呼叫端處理，讀取端不保留任何列資料
+public interface ExcelRowCallback {
+
+    void startSheet(int sheetIndex, String sheetName) throws IOException;
+
+    // cells 在回呼結束後不再被讀取端使用；第 0 列為標題列，其餘列依標題欄數補齊空字串
+    void row(int rowNum, List<String> cells) throws IOException;
+
+    void endSheet(List<String> headers, int totalRows) throws IOException;
+}
@@ -0,0 +1,205 @@
+package com.example.demo_api.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+// 以 memory-mapped 暫存檔保存 shared strings 的唯讀表：sharedStrings.xml 解析一次後，
+// 字串以 UTF-8 依序寫入資料檔、各字串的起始位置寫入索引檔，兩者 mmap 後由 OS page cache 管理，不佔 heap；
+// 前面加上有上限的 LRU（Caffeine）保留常用字串，heap 用量只隨實際被引用的不重複字串成長。
+// 解析規則與 ReadOnlySharedStringsTable(includePhoneticRuns = false) 相同；getItemAt 可多執行緒同時呼叫
+class MappedSharedStringsTable implements SharedStrings, Closeable {
+
+    private final Path dataFile;
+    private final Path indexFile;
+    private final MappedByteBuffer data;
+    private final IntBuffer offsets;
+    private final int count;
+    private final int uniqueCount;
+    private final int strings;
+    private final LoadingCache<Integer, String> cache;
+
+    private MappedSharedStringsTable(Path dataFile, Path indexFile, int count, int uniqueCount, int strings,
+                                     int cacheSize) throws IOException {
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+        this.count = count;
+        this.uniqueCount = uniqueCount;
+        this.strings = strings;
+        try (FileChannel dataChannel = FileChannel.open(dataFile, StandardOpenOption.READ);
+             FileChannel indexChannel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            // mapping 在 channel 關閉後仍然有效
+            this.data = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, dataChannel.size());
+            this.offsets = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size()).asIntBuffer();
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build(this::readString);
+    }
+
+    static MappedSharedStringsTable load(PackagePart part, int cacheSize)
+            throws IOException, SAXException, ParserConfigurationException {
+        Path dataFile = Files.createTempFile("demo-api-sst-", ".dat");
+        Path indexFile = Files.createTempFile("demo-api-sst-", ".idx");
+        try {
+            SpoolingHandler handler;
+            try (DataOutputStream dataStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dataFile)));
+                 DataOutputStream indexStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)));
+                 InputStream sharedStringsStream = part.getInputStream()) {
+                handler = new SpoolingHandler(dataStream, indexStream);
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(handler);
+                parser.parse(new InputSource(sharedStringsStream));
+                // 結尾位置，第 i 個字串為 [offsets[i], offsets[i + 1])
+                indexStream.writeInt(dataStream.size());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return new MappedSharedStringsTable(dataFile, indexFile, handler.count, handler.uniqueCount,
+                    handler.strings, cacheSize);
+        } catch (IOException | SAXException | ParserConfigurationException | RuntimeException e) {
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(indexFile);
+            throw e;
+        }
+    }
+
+    @Override
+    public RichTextString getItemAt(int idx) {
+        return new XSSFRichTextString(cache.get(idx));
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public int getUniqueCount() {
+        return uniqueCount;
+    }
+
+    // 絕對位置讀取，不改變 buffer 狀態，可多執行緒同時讀
+    private String readString(int idx) {
+        if (idx < 0 || idx >= strings) {
+            throw new IndexOutOfBoundsException("Shared string index " + idx + " out of range " + strings);
+        }
+        int start = offsets.get(idx);
+        byte[] bytes = new byte[offsets.get(idx + 1) - start];
+        data.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 暫存檔可在 mapping 釋放前刪除（Linux），mapping 由 GC 回收
+    @Override
+    public void close() throws IOException {
+        cache.invalidateAll();
+        Files.deleteIfExists(dataFile);
+        Files.deleteIfExists(indexFile);
+    }
+
+    // 逐個 <si> 收集文字並寫出，同時間只保留一個字串在 heap
+    private static final class SpoolingHandler extends DefaultHandler {
+
+        private final DataOutputStream dataStream;
+        private final DataOutputStream indexStream;
+        private final StringBuilder characters = new StringBuilder(64);
+        private boolean tIsOpen;
+        private boolean inRPh;
+        private int count;
+        private int uniqueCount;
+        private int strings;
+
+        SpoolingHandler(DataOutputStream dataStream, DataOutputStream indexStream) {
+            this.dataStream = dataStream;
+            this.indexStream = indexStream;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (uri != null && !uri.equals(NS_SPREADSHEETML)) {
+                return;
+            }
+            switch (localName) {
+                case "sst" -> {
+                    String countValue = attributes.getValue("count");
+                    if (countValue != null) {
+                        count = (int) Long.parseLong(countValue);
+                    }
+                    String uniqueCountValue = attributes.getValue("uniqueCount");
+                    if (uniqueCountValue != null) {
+                        uniqueCount = (int) Long.parseLong(uniqueCountValue);
+                    }
+                }
+                case "si" -> characters.setLength(0);
+                case "t" -> tIsOpen = true;
+                case "rPh" -> inRPh = true;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (uri != null && !uri.equals(NS_SPREADSHEETML)) {
+                return;
+            }
+            switch (localName) {
+                case "si" -> writeString();
+                case "t" -> tIsOpen = false;
+                case "rPh" -> inRPh = false;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            // 不含注音 / 讀音標示（rPh）
+            if (tIsOpen && !inRPh) {
+                characters.append(ch, start, length);
+            }
+        }
+
+        private void writeString() throws SAXException {
+            byte[] bytes = characters.toString().getBytes(StandardCharsets.UTF_8);
+            // 位置以 int 記錄，資料檔上限 2GB
+            if ((long) dataStream.size() + bytes.length >= Integer.MAX_VALUE) {
+                throw new SAXException("Shared strings table exceeds 2GB");
+            }
+            try {
+                indexStream.writeInt(dataStream.size());
+                dataStream.write(bytes);
+                strings++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
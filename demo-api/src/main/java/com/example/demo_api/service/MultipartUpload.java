@@ -0,0 +1,114 @@
+package com.example.demo_api.service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+// 單一檔案欄位的 multipart/form-data 請求體，直接寫入 HttpURLConnection 的輸出串流：
+// 內容長度已知（記憶體中的內容）時以 setFixedLengthStreamingMode 宣告 Content-Length；
+// 長度未知（邊產生邊寫出）時改用 setChunkedStreamingMode。兩種模式 JDK 都不會在記憶體緩衝整個請求體，
+// 未設定串流模式時 HttpURLConnection 會把請求體全部放進 byte[] 以計算 Content-Length
+public final class MultipartUpload {
+
+    public static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final String boundary = "----DemoApiBoundary" + UUID.randomUUID().toString().replace("-", "");
+    private final byte[] head;
+    private final byte[] tail;
+    // 檔案內容長度，未知時為 -1
+    private final long partLength;
+    private final PartWriter partWriter;
+
+    // 寫出檔案欄位的內容，不需要關閉 out
+    @FunctionalInterface
+    public interface PartWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private MultipartUpload(String fieldName, String filename, String contentType, long partLength, PartWriter partWriter) {
+        this.head = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + fieldName + "\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        this.tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        this.partLength = partLength;
+        this.partWriter = partWriter;
+    }
+
+    // 上傳已在記憶體中的內容：Content-Length 可預先計算，直接寫入連線，不經過暫存檔
+    public static MultipartUpload ofBytes(String fieldName, String filename, String contentType, byte[] content) {
+        return new MultipartUpload(fieldName, filename, contentType, content.length, out -> out.write(content));
+    }
+
+    // 邊產生邊上傳（例如 workbook.write(out)），長度未知，以 chunked 傳送
+    public static MultipartUpload ofWriter(String fieldName, String filename, String contentType, PartWriter partWriter) {
+        return new MultipartUpload(fieldName, filename, contentType, -1, partWriter);
+    }
+
+    public String getContentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    // 整個請求體的長度，檔案內容長度未知時為 -1
+    public long getContentLength() {
+        return partLength >= 0 ? head.length + partLength + tail.length : -1;
+    }
+
+    public boolean isChunked() {
+        return partLength < 0;
+    }
+
+    // 在 connect() / getOutputStream() 之前呼叫：設定 Content-Type 與串流模式
+    public void prepare(HttpURLConnection connection) {
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", getContentType());
+        long contentLength = getContentLength();
+        if (contentLength >= 0) {
+            connection.setFixedLengthStreamingMode(contentLength);
+        } else {
+            connection.setChunkedStreamingMode(CHUNK_SIZE);
+        }
+    }
+
+    // 寫出完整請求體並關閉連線的輸出串流，回傳檔案內容的位元組數
+    public long send(HttpURLConnection connection) throws IOException {
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(head);
+            PartOutputStream part = new PartOutputStream(out);
+            partWriter.writeTo(part);
+            out.write(tail);
+            return part.count;
+        }
+    }
+
+    // 計算檔案內容的位元組數；close() 只 flush，結尾的 boundary 仍由 send 寫出
+    private static final class PartOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        PartOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo_api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// 解析結果快取：以檔案內容的 XXH3 雜湊 + 大小 + 操作（讀取引擎 / 結構分析）為 key，
+// 相同內容的 Excel 不再經過 POI 解析；容量以結果的估計 heap 大小計算，由 Caffeine（W-TinyLFU）淘汰
+@Component
+public class ParsedResultCache {
+
+    private final Cache<Key, Map<String, Object>> cache;
+
+    @Autowired
+    public ParsedResultCache(MeterRegistry meterRegistry,
+                             @Value("${excel.reader.cache.enabled:true}") boolean enabled,
+                             @Value("${excel.reader.cache.max-weight-bytes:134217728}") long maxWeightBytes,
+                             @Value("${excel.reader.cache.expire-after-access:30m}") Duration expireAfterAccess) {
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Key key, Map<String, Object> result) -> (int) Math.min(estimateBytes(result), Integer.MAX_VALUE))
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+        // cache.gets{result=hit|miss}、cache.evictions、cache.eviction.weight 等指標
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "excel.parsed-results");
+    }
+
+    // 命中時回傳快取結果的淺層複本（更新 timestamp、cache_hit = true）；
+    // 未命中時執行 loader，只快取 status = success 的結果
+    public Map<String, Object> get(ExcelPayload payload, String operation, Supplier<Map<String, Object>> loader) {
+        if (cache == null) {
+            return loader.get();
+        }
+
+        Key key;
+        try {
+            key = new Key(payload.contentHash(), payload.size(), operation);
+        } catch (IOException e) {
+            // 無法計算雜湊時直接解析，由解析流程回報錯誤
+            return loader.get();
+        }
+
+        Map<String, Object> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            Map<String, Object> result = new HashMap<>(cached);
+            result.put("timestamp", LocalDateTime.now());
+            result.put("cache_hit", true);
+            return result;
+        }
+
+        Map<String, Object> result = loader.get();
+        result.put("cache_hit", false);
+        if ("success".equals(result.get("status"))) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    // 粗估結果在 heap 中的大小：字串以 UTF-16 計算，集合加上物件與參考的額外負擔
+    static long estimateBytes(Object value) {
+        if (value instanceof String string) {
+            return 40L + 2L * string.length();
+        }
+        if (value instanceof Map<?, ?> map) {
+            long bytes = 48L;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                bytes += 32L + estimateBytes(entry.getKey()) + estimateBytes(entry.getValue());
+            }
+            return bytes;
+        }
+        if (value instanceof Collection<?> collection) {
+            long bytes = 24L;
+            for (Object element : collection) {
+                bytes += 8L + estimateBytes(element);
+            }
+            return bytes;
+        }
+        if (value instanceof ColumnarSheet sheet) {
+            return sheet.estimateBytes();
+        }
+        if (value instanceof Object[] array) {
+            long bytes = 16L;
+            for (Object element : array) {
+                bytes += 8L + estimateBytes(element);
+            }
+            return bytes;
+        }
+        return 16L;
+    }
+
+    private record Key(long contentHash, long size, String operation) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo_api.service;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.xml.sax.ContentHandler;
+
+import java.util.Map;
+
+// 單一工作表的 SAX 收集器：StreamingSheetHandler（逐列字串）或 ColumnarSheetReader（欄式型別）
+interface SheetCollector {
+
+    ExcelReadOptions getOptions();
+
+    // 標題列解析完成前一律接受；SheetReadFilter 依此略過未投影的儲存格
+    boolean acceptsColumn(int columnIndex);
+
+    // 解析 sheet XML 的 SAX handler，formatter 不可跨執行緒共用
+    ContentHandler newContentHandler(StylesTable styles, SharedStrings sharedStrings, DataFormatter formatter);
+
+    Map<String, Object> toSheetData();
+}
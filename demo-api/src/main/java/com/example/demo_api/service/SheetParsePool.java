@@ -0,0 +1,69 @@
+package com.example.demo_api.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 平行解析工作表用的共用執行緒池：解析屬 CPU 密集工作，固定為有限的 platform thread；
+// 等待佇列有上限，佇列已滿時 submit 丟出 RejectedExecutionException，由請求執行緒自行解析。
+// 不註冊為 Executor bean，以免取代 Spring MVC 非同步回應使用的 applicationTaskExecutor
+@Component
+public class SheetParsePool {
+
+    private final ExecutorService executor;
+    private final int maxParallelismPerRequest;
+
+    @Autowired
+    public SheetParsePool(MeterRegistry meterRegistry,
+                          @Value("${excel.reader.parallel.pool-size:0}") int poolSize,
+                          @Value("${excel.reader.parallel.max-sheets-per-request:4}") int maxParallelismPerRequest,
+                          @Value("${excel.reader.parallel.queue-capacity:64}") int queueCapacity) {
+        // pool-size <= 0 時使用 CPU 核心數
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "excel-parse-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+        this.maxParallelismPerRequest = Math.max(1, maxParallelismPerRequest);
+        // executor.pool.size、executor.active、executor.queued 等指標
+        new ExecutorServiceMetrics(pool, "excel.parse", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    // 單一請求最多同時解析的工作表數，避免一份大量工作表的檔案佔滿整個執行緒池
+    public int parallelismFor(int sheetCount) {
+        return Math.max(1, Math.min(maxParallelismPerRequest, sheetCount));
+    }
+
+    // 佇列已滿時丟出 RejectedExecutionException
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    // 整份檔案的解析（/async/batch-read），同樣受佇列上限限制；在池內執行的 parallel 引擎
+    // 只等待已開始執行的工作表 worker，不會因等待佇列中的工作而卡住池內執行緒
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.demo_api.service;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+// 放在 XSSFSheetXMLHandler / ColumnarSheetReader 前面的 SAX 過濾器：範圍外的 <row> 與未投影欄位的 <c> 整段不轉交，
+// 不會經過 shared strings 查詢、DataFormatter 格式化，也不會建立字串；
+// 讀到 limit 之後的第一個資料列時拋出 LimitReachedException，不再讀取剩餘的 sheet XML
+class SheetReadFilter implements ContentHandler {
+
+    private final ContentHandler delegate;
+    private final SheetCollector collector;
+    private final ExcelReadOptions options;
+
+    private int dataRowIndex;
+    private boolean seenRow;
+    private boolean headerRow;
+    // 正在略過的元素深度，0 表示正常轉交
+    private int skipDepth;
+
+    SheetReadFilter(ContentHandler delegate, SheetCollector collector) {
+        this.delegate = delegate;
+        this.collector = collector;
+        this.options = collector.getOptions();
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+        if (skipDepth > 0) {
+            skipDepth++;
+            return;
+        }
+        if ("row".equals(localName)) {
+            // 與 XSSFSheetXMLHandler 相同：沒有 r 屬性時接續上一列
+            String rowNumber = atts.getValue("r");
+            headerRow = rowNumber != null ? "1".equals(rowNumber) : !seenRow;
+            seenRow = true;
+            if (!headerRow) {
+                int index = dataRowIndex++;
+                if (options.isPastLimit(index)) {
+                    throw new LimitReachedException();
+                }
+                if (!options.includesDataRow(index)) {
+                    skipDepth = 1;
+                    return;
+                }
+            }
+        } else if ("c".equals(localName) && !headerRow) {
+            String cellReference = atts.getValue("r");
+            if (cellReference != null && !collector.acceptsColumn(StreamingSheetHandler.columnIndex(cellReference))) {
+                skipDepth = 1;
+                return;
+            }
+        }
+        delegate.startElement(uri, localName, qName, atts);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if (skipDepth > 0) {
+            skipDepth--;
+            return;
+        }
+        delegate.endElement(uri, localName, qName);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (skipDepth == 0) {
+            delegate.characters(ch, start, length);
+        }
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        if (skipDepth == 0) {
+            delegate.ignorableWhitespace(ch, start, length);
+        }
+    }
+
+    @Override
+    public void setDocumentLocator(Locator locator) {
+        delegate.setDocumentLocator(locator);
+    }
+
+    @Override
+    public void startDocument() throws SAXException {
+        delegate.startDocument();
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        delegate.endDocument();
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        delegate.startPrefixMapping(prefix, uri);
+    }
+
+    @Override
+    public void endPrefixMapping(String prefix) throws SAXException {
+        delegate.endPrefixMapping(prefix);
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) throws SAXException {
+        delegate.processingInstruction(target, data);
+    }
+
+    @Override
+    public void skippedEntity(String name) throws SAXException {
+        delegate.skippedEntity(name);
+    }
+
+    // 已讀完 offset + limit 範圍，中止這個工作表的解析；由 ExcelReaderService 視為正常結束
+    static final class LimitReachedException extends SAXException {
+
+        LimitReachedException() {
+            super("Row limit reached");
+        }
+    }
+}
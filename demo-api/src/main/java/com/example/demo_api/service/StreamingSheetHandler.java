@@ -0,0 +1,191 @@
+package com.example.demo_api.service;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.ContentHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// SAX 事件模式的工作表收集器：逐列接收 XSSFSheetXMLHandler 的回呼，
+// 產生與 ExcelReaderService.readSheetData 相同結構的 Map，不建立工作表 DOM；
+// 指定 ExcelRowCallback 時改為逐列轉交，不保留列資料
+class StreamingSheetHandler implements SheetContentsHandler, SheetCollector {
+
+    private final String sheetName;
+    private final ExcelRowCallback callback;
+    private final ExcelReadOptions options;
+    private final List<List<String>> rows = new ArrayList<>();
+    private final List<String> headers = new ArrayList<>();
+    private int rowCount;
+
+    // 欄位投影：標題列解析完後，columnPositions[欄位索引] = 輸出位置，未投影的欄位為 -1
+    private List<String> outputHeaders = headers;
+    private int[] columnPositions;
+
+    private List<String> currentRow;
+    private int currentRowNum;
+    private int firstRowNum = -1;
+    private int lastRowNum = -1;
+
+    StreamingSheetHandler(String sheetName) {
+        this(sheetName, null, ExcelReadOptions.ALL);
+    }
+
+    StreamingSheetHandler(String sheetName, ExcelRowCallback callback, ExcelReadOptions options) {
+        this.sheetName = sheetName;
+        this.callback = callback;
+        this.options = options;
+    }
+
+    @Override
+    public ExcelReadOptions getOptions() {
+        return options;
+    }
+
+    @Override
+    public boolean acceptsColumn(int columnIndex) {
+        if (columnPositions == null) {
+            return true;
+        }
+        return columnIndex < columnPositions.length && columnPositions[columnIndex] >= 0;
+    }
+
+    @Override
+    public void startRow(int rowNum) {
+        currentRowNum = rowNum;
+        if (firstRowNum < 0) {
+            firstRowNum = rowNum;
+        }
+        lastRowNum = rowNum;
+
+        if (rowNum == 0) {
+            currentRow = new ArrayList<>();
+        } else {
+            // 數據行依標題欄數預先補空字串，事件模式不會回呼空白儲存格
+            currentRow = new ArrayList<>(outputHeaders.size());
+            for (int i = 0; i < outputHeaders.size(); i++) {
+                currentRow.add("");
+            }
+        }
+    }
+
+    @Override
+    public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+        String value = formattedValue != null ? formattedValue : "";
+
+        if (currentRowNum == 0) {
+            // 第一行作為標題
+            headers.add(value);
+            currentRow.add(value);
+            return;
+        }
+
+        int cellIndex = cellReference != null ? columnIndex(cellReference) : -1;
+        if (columnPositions != null) {
+            cellIndex = cellIndex >= 0 && cellIndex < columnPositions.length ? columnPositions[cellIndex] : -1;
+        }
+        if (cellIndex >= 0 && cellIndex < currentRow.size()) {
+            currentRow.set(cellIndex, value);
+        }
+    }
+
+    @Override
+    public void endRow(int rowNum) {
+        if (rowNum == 0 && options.isProjected()) {
+            resolveProjection();
+            currentRow = new ArrayList<>(outputHeaders);
+        }
+        rowCount++;
+        if (callback != null) {
+            try {
+                callback.row(rowNum, currentRow);
+            } catch (IOException e) {
+                // SheetContentsHandler 不允許 checked exception，由 ExcelReaderService 解開
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            rows.add(currentRow);
+        }
+        currentRow = null;
+    }
+
+    // 依指定順序對應標題名稱到欄位索引（標題列第 i 個值即第 i 欄），找不到的名稱略過
+    private void resolveProjection() {
+        columnPositions = new int[headers.size()];
+        Arrays.fill(columnPositions, -1);
+        outputHeaders = new ArrayList<>();
+        for (String column : options.columns()) {
+            int columnIndex = headers.indexOf(column);
+            if (columnIndex >= 0 && columnPositions[columnIndex] < 0) {
+                columnPositions[columnIndex] = outputHeaders.size();
+                outputHeaders.add(column);
+            }
+        }
+    }
+
+    List<String> getHeaders() {
+        return outputHeaders;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    // formulasNotResults = true，與 DOM 模式回傳公式字串一致
+    @Override
+    public ContentHandler newContentHandler(StylesTable styles, SharedStrings sharedStrings, DataFormatter formatter) {
+        return new XSSFSheetXMLHandler(styles, sharedStrings, this, formatter, true);
+    }
+
+    @Override
+    public Map<String, Object> toSheetData() {
+        Map<String, Object> sheetData = new HashMap<>();
+
+        sheetData.put("sheet_name", sheetName);
+        sheetData.put("first_row_num", firstRowNum);
+        sheetData.put("last_row_num", lastRowNum);
+        sheetData.put("physical_number_of_rows", rows.size());
+        sheetData.put("headers", outputHeaders);
+        sheetData.put("total_rows", rows.size());
+        sheetData.put("data_rows", rows.size() - 1); // 扣除標題行
+        sheetData.put("rows", rows);
+        if (!options.isAll()) {
+            sheetData.put("offset", options.offset());
+            sheetData.put("limit", options.limit());
+        }
+
+        // 統計數據
+        if (rows.size() > 1) {
+            sheetData.put("sample_data", rows.subList(0, Math.min(3, rows.size()))); // 前3行作為範例
+        }
+
+        return sheetData;
+    }
+
+    // 由 "AB12" 之類的儲存格參照取出 0-based 欄位索引，不建立 CellReference 物件
+    static int columnIndex(String cellReference) {
+        int column = 0;
+        int length = cellReference.length();
+        for (int i = 0; i < length; i++) {
+            char c = cellReference.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                column = column * 26 + (c - 'A' + 1);
+            } else if (c >= 'a' && c <= 'z') {
+                column = column * 26 + (c - 'a' + 1);
+            } else if (c != '$') {
+                break;
+            }
+        }
+        return column - 1;
+    }
+}
@@ -0,0 +1,367 @@
+package com.example.demo_api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.xssf.model.SharedStrings;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 欄式儲存的單一欄位：依實際出現的值決定型別，以 primitive 陣列保存，空白儲存格記在 present bitmap；
+// integer 遇到小數時升級為 number，其他型別混用時整欄轉為 string（dictionary 編碼，重複值只保存一次）
+public final class TypedColumn {
+
+    public enum Type {
+        EMPTY, INTEGER, NUMBER, DATE, BOOLEAN, STRING;
+
+        String jsonName() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final String name;
+    private Type type = Type.EMPTY;
+    private int size;
+    private final BitSet present = new BitSet();
+
+    // INTEGER 與 BOOLEAN（0 / 1）
+    private long[] longs;
+    // NUMBER 與 DATE（Excel 日期序號）
+    private double[] doubles;
+    // STRING：dictionary 中的位置
+    private int[] codes;
+    private List<String> dictionary;
+    private Map<String, Integer> codesByValue;
+    // shared strings 索引到 dictionary 位置，同一字串只向 SharedStrings 查詢一次
+    private Map<Integer, Integer> codesBySharedStringIndex;
+
+    TypedColumn(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int nullCount() {
+        return size - present.cardinality();
+    }
+
+    void addInteger(int row, long value) {
+        if (type == Type.NUMBER) {
+            addNumber(row, value);
+            return;
+        }
+        prepare(row, Type.INTEGER);
+        if (type == Type.STRING) {
+            addStringValue(row, Long.toString(value));
+            return;
+        }
+        longs[row] = value;
+        present.set(row);
+    }
+
+    // 整數值（Excel 一律以 double 儲存）改存為 integer
+    void addNumber(int row, double value) {
+        if (type != Type.NUMBER && isInteger(value)) {
+            addInteger(row, (long) value);
+            return;
+        }
+        prepare(row, Type.NUMBER);
+        if (type == Type.STRING) {
+            addStringValue(row, NumberToTextConverter.toText(value));
+            return;
+        }
+        doubles[row] = value;
+        present.set(row);
+    }
+
+    void addDate(int row, double excelDate) {
+        prepare(row, Type.DATE);
+        if (type == Type.STRING) {
+            addStringValue(row, dateText(excelDate));
+            return;
+        }
+        doubles[row] = excelDate;
+        present.set(row);
+    }
+
+    void addBoolean(int row, boolean value) {
+        prepare(row, Type.BOOLEAN);
+        if (type == Type.STRING) {
+            addStringValue(row, Boolean.toString(value));
+            return;
+        }
+        longs[row] = value ? 1 : 0;
+        present.set(row);
+    }
+
+    void addString(int row, String value) {
+        prepare(row, Type.STRING);
+        addStringValue(row, value);
+    }
+
+    void addSharedString(int row, int sharedStringIndex, SharedStrings sharedStrings) {
+        if (type == Type.STRING && codesBySharedStringIndex != null) {
+            Integer code = codesBySharedStringIndex.get(sharedStringIndex);
+            if (code != null) {
+                prepare(row, Type.STRING);
+                codes[row] = code;
+                present.set(row);
+                return;
+            }
+        }
+        addString(row, sharedStrings.getItemAt(sharedStringIndex).getString());
+        if (codesBySharedStringIndex == null) {
+            codesBySharedStringIndex = new HashMap<>();
+        }
+        codesBySharedStringIndex.put(sharedStringIndex, codes[row]);
+    }
+
+    // 補齊結尾的空白列；空白列只記在 present bitmap，陣列內容不使用
+    void finish(int rowCount) {
+        ensureCapacity(rowCount);
+        size = Math.max(size, rowCount);
+    }
+
+    private void addStringValue(int row, String value) {
+        Integer code = codesByValue.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(value);
+            codesByValue.put(value, code);
+        }
+        codes[row] = code;
+        present.set(row);
+    }
+
+    // 補齊 row 之前的空白列並處理型別升級
+    private void prepare(int row, Type valueType) {
+        if (type == Type.EMPTY) {
+            type = valueType;
+            allocate(valueType, Math.max(INITIAL_CAPACITY, row + 1));
+        } else if (type != valueType) {
+            if (type == Type.INTEGER && valueType == Type.NUMBER) {
+                toNumber();
+            } else if (type != Type.STRING) {
+                toStrings();
+            }
+        }
+        finish(row + 1);
+    }
+
+    private void allocate(Type valueType, int capacity) {
+        switch (valueType) {
+            case INTEGER, BOOLEAN -> longs = new long[capacity];
+            case NUMBER, DATE -> doubles = new double[capacity];
+            case STRING -> {
+                codes = new int[capacity];
+                dictionary = new ArrayList<>();
+                codesByValue = new HashMap<>();
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        int current = longs != null ? longs.length : doubles != null ? doubles.length : codes != null ? codes.length : 0;
+        if (capacity <= current) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, current + (current >> 1));
+        if (longs != null) {
+            longs = Arrays.copyOf(longs, newCapacity);
+        }
+        if (doubles != null) {
+            doubles = Arrays.copyOf(doubles, newCapacity);
+        }
+        if (codes != null) {
+            codes = Arrays.copyOf(codes, newCapacity);
+        }
+    }
+
+    private void toNumber() {
+        doubles = new double[longs.length];
+        for (int i = 0; i < size; i++) {
+            doubles[i] = longs[i];
+        }
+        longs = null;
+        type = Type.NUMBER;
+    }
+
+    private void toStrings() {
+        // 以原型別轉成文字後重新編碼
+        Type previousType = type;
+        long[] previousLongs = longs;
+        double[] previousDoubles = doubles;
+        longs = null;
+        doubles = null;
+        allocate(Type.STRING, Math.max(INITIAL_CAPACITY, size + 1));
+        type = Type.STRING;
+        for (int i = present.nextSetBit(0); i >= 0 && i < size; i = present.nextSetBit(i + 1)) {
+            addStringValue(i, switch (previousType) {
+                case INTEGER -> Long.toString(previousLongs[i]);
+                case NUMBER -> NumberToTextConverter.toText(previousDoubles[i]);
+                case DATE -> dateText(previousDoubles[i]);
+                case BOOLEAN -> Boolean.toString(previousLongs[i] != 0);
+                default -> "";
+            });
+        }
+    }
+
+    long estimateBytes() {
+        long bytes = 64L + size / 8;
+        if (longs != null) {
+            bytes += 8L * longs.length;
+        }
+        if (doubles != null) {
+            bytes += 8L * doubles.length;
+        }
+        if (codes != null) {
+            bytes += 4L * codes.length;
+            for (String value : dictionary) {
+                // dictionary 與反查表各一份參照
+                bytes += 40L + 2L * value.length() + 64L;
+            }
+        }
+        return bytes;
+    }
+
+    // {"name", "type", "null_count", "values" 或 "dictionary" + "codes", "stats"}；空白輸出 null / -1
+    void writeTo(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", name);
+        generator.writeStringField("type", type.jsonName());
+        generator.writeNumberField("null_count", nullCount());
+
+        if (type == Type.STRING) {
+            generator.writeArrayFieldStart("dictionary");
+            for (String value : dictionary) {
+                generator.writeString(value);
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("codes");
+            for (int i = 0; i < size; i++) {
+                generator.writeNumber(present.get(i) ? codes[i] : -1);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeArrayFieldStart("values");
+            for (int i = 0; i < size; i++) {
+                if (!present.get(i)) {
+                    generator.writeNull();
+                    continue;
+                }
+                switch (type) {
+                    case INTEGER -> generator.writeNumber(longs[i]);
+                    case NUMBER -> generator.writeNumber(doubles[i]);
+                    case DATE -> generator.writeString(dateText(doubles[i]));
+                    case BOOLEAN -> generator.writeBoolean(longs[i] != 0);
+                    default -> generator.writeNull();
+                }
+            }
+            generator.writeEndArray();
+        }
+
+        generator.writeObjectFieldStart("stats");
+        writeStats(generator);
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    // 直接由 primitive 陣列計算的欄位統計
+    private void writeStats(JsonGenerator generator) throws IOException {
+        switch (type) {
+            case INTEGER, NUMBER, DATE -> {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                double sum = 0;
+                int count = 0;
+                for (int i = present.nextSetBit(0); i >= 0 && i < size; i = present.nextSetBit(i + 1)) {
+                    double value = type == Type.INTEGER ? longs[i] : doubles[i];
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                    sum += value;
+                    count++;
+                }
+                if (count == 0) {
+                    return;
+                }
+                if (type == Type.DATE) {
+                    generator.writeStringField("min", dateText(min));
+                    generator.writeStringField("max", dateText(max));
+                } else if (type == Type.INTEGER) {
+                    generator.writeNumberField("min", (long) min);
+                    generator.writeNumberField("max", (long) max);
+                    generator.writeNumberField("sum", (long) sum);
+                    generator.writeNumberField("mean", sum / count);
+                } else {
+                    generator.writeNumberField("min", min);
+                    generator.writeNumberField("max", max);
+                    generator.writeNumberField("sum", sum);
+                    generator.writeNumberField("mean", sum / count);
+                }
+            }
+            case BOOLEAN -> {
+                int trueCount = 0;
+                for (int i = present.nextSetBit(0); i >= 0 && i < size; i = present.nextSetBit(i + 1)) {
+                    trueCount += (int) longs[i];
+                }
+                generator.writeNumberField("true_count", trueCount);
+            }
+            case STRING -> {
+                int[] counts = new int[dictionary.size()];
+                for (int i = present.nextSetBit(0); i >= 0 && i < size; i = present.nextSetBit(i + 1)) {
+                    counts[codes[i]]++;
+                }
+                generator.writeNumberField("distinct_count", dictionary.size());
+                // 出現次數最多的前 5 個值
+                generator.writeObjectFieldStart("top_values");
+                boolean[] written = new boolean[counts.length];
+                for (int n = 0; n < Math.min(5, counts.length); n++) {
+                    int best = -1;
+                    for (int code = 0; code < counts.length; code++) {
+                        if (!written[code] && (best < 0 || counts[code] > counts[best])) {
+                            best = code;
+                        }
+                    }
+                    written[best] = true;
+                    generator.writeNumberField(dictionary.get(best), counts[best]);
+                }
+                generator.writeEndObject();
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static boolean isInteger(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 9.007199254740992E15;
+    }
+
+    // 午夜時間只輸出日期，例如 2023-01-15；否則輸出 ISO 日期時間
+    static String dateText(double excelDate) {
+        LocalDateTime dateTime = DateUtil.getLocalDateTime(excelDate);
+        return dateTime.toLocalTime().toSecondOfDay() == 0 && dateTime.getNano() == 0
+                ? dateTime.toLocalDate().toString()
+                : dateTime.toString();
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.demo_api.service;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.XMLHelper;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 只看 zip 目錄與少數 XML 開頭的結構分析：由 _rels/.rels → workbook.xml 取得工作表清單，
+// 每個工作表讀到 <dimension> 即停止；不建立 OPCPackage，也不載入 shared strings、styles 或任何儲存格內容。
+// 沒有 <dimension>，或只有單一儲存格（部分產生器固定寫 A1）時，改為計數 <row> 元素，不讀取儲存格值
+final class WorkbookMetadataReader {
+
+    static final String SOURCE_DIMENSION = "dimension";
+    static final String SOURCE_ROWS = "rows";
+
+    private static final String OFFICE_DOCUMENT_RELATIONSHIP = "/officeDocument";
+    private static final String CHARTSHEET_RELATIONSHIP = "/chartsheet";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLHelper.newXMLInputFactory();
+
+    private WorkbookMetadataReader() {
+    }
+
+    // 依 workbook.xml 的順序回傳各工作表的 index / name / state / rows / columns / estimated_cells 等欄位
+    static List<Map<String, Object>> readSheets(ZipFile zip) throws IOException, XMLStreamException {
+        String workbookPath = findWorkbookPath(zip);
+        Map<String, Relationship> relationships = readRelationships(zip, relationshipsPath(workbookPath));
+        String baseDirectory = workbookPath.substring(0, workbookPath.lastIndexOf('/') + 1);
+
+        List<Map<String, Object>> sheets = new ArrayList<>();
+        try (InputStream in = openEntry(zip, workbookPath)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT || !"sheet".equals(reader.getLocalName())) {
+                        continue;
+                    }
+                    Map<String, Object> sheetInfo = new HashMap<>();
+                    sheetInfo.put("index", sheets.size());
+                    sheetInfo.put("name", reader.getAttributeValue(null, "name"));
+                    String state = reader.getAttributeValue(null, "state");
+                    sheetInfo.put("state", state != null ? state : "visible");
+
+                    Relationship relationship = relationships.get(relationshipId(reader));
+                    if (relationship == null || relationship.type().endsWith(CHARTSHEET_RELATIONSHIP)) {
+                        // 圖表工作表沒有儲存格
+                        sheetInfo.put("sheet_type", "chartsheet");
+                        sheetInfo.put("rows", 0);
+                        sheetInfo.put("columns", 0);
+                        sheetInfo.put("estimated_cells", 0L);
+                    } else {
+                        sheetInfo.put("sheet_type", "worksheet");
+                        readDimension(zip, resolve(baseDirectory, relationship.target()), sheetInfo);
+                    }
+                    sheets.add(sheetInfo);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return sheets;
+    }
+
+    // 讀到 <sheetData> 之前的 <dimension ref="A1:G41">；範圍不確定時接著計數 <row>
+    private static void readDimension(ZipFile zip, String sheetPath, Map<String, Object> sheetInfo)
+            throws IOException, XMLStreamException {
+        String dimension = null;
+        String source = SOURCE_ROWS;
+        int rows = 0;
+        int columns = 0;
+        try (InputStream in = openEntry(zip, sheetPath)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                boolean inFirstRow = false;
+                boolean countCells = false;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (inFirstRow && "row".equals(reader.getLocalName())) {
+                            inFirstRow = false;
+                        }
+                        continue;
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    String localName = reader.getLocalName();
+                    if ("dimension".equals(localName)) {
+                        dimension = reader.getAttributeValue(null, "ref");
+                        if (dimension != null && dimension.indexOf(':') > 0) {
+                            CellRangeAddress range = CellRangeAddress.valueOf(dimension);
+                            rows = range.getLastRow() - range.getFirstRow() + 1;
+                            columns = range.getLastColumn() - range.getFirstColumn() + 1;
+                            source = SOURCE_DIMENSION;
+                            break;
+                        }
+                    } else if ("row".equals(localName)) {
+                        // 與 DOM 分析相同：欄位數以第一列為準，優先使用 spans="1:7"
+                        if (rows++ == 0) {
+                            inFirstRow = true;
+                            String spans = reader.getAttributeValue(null, "spans");
+                            int separator = spans != null ? spans.indexOf(':') : -1;
+                            if (separator > 0) {
+                                columns = Integer.parseInt(spans, separator + 1, spans.length(), 10)
+                                        - Integer.parseInt(spans, 0, separator, 10) + 1;
+                            } else {
+                                countCells = true;
+                            }
+                        }
+                    } else if ("c".equals(localName) && inFirstRow && countCells) {
+                        columns++;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        sheetInfo.put("dimension", dimension);
+        sheetInfo.put("row_count_source", source);
+        sheetInfo.put("rows", rows);
+        sheetInfo.put("columns", columns);
+        sheetInfo.put("estimated_cells", (long) rows * columns);
+    }
+
+    // _rels/.rels 中 officeDocument 關聯指向的 workbook part，通常為 xl/workbook.xml
+    private static String findWorkbookPath(ZipFile zip) throws IOException, XMLStreamException {
+        for (Relationship relationship : readRelationships(zip, "_rels/.rels").values()) {
+            if (relationship.type().endsWith(OFFICE_DOCUMENT_RELATIONSHIP)) {
+                return resolve("", relationship.target());
+            }
+        }
+        throw new IOException("No officeDocument relationship found, not an OOXML package");
+    }
+
+    private static Map<String, Relationship> readRelationships(ZipFile zip, String path)
+            throws IOException, XMLStreamException {
+        Map<String, Relationship> relationships = new HashMap<>();
+        try (InputStream in = openEntry(zip, path)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(reader.getLocalName())) {
+                        relationships.put(reader.getAttributeValue(null, "Id"), new Relationship(
+                                reader.getAttributeValue(null, "Type"), reader.getAttributeValue(null, "Target")));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return relationships;
+    }
+
+    // <sheet r:id="rId1">；transitional 與 strict 格式的關聯命名空間不同，只比對屬性名稱
+    private static String relationshipId(XMLStreamReader reader) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String namespace = reader.getAttributeNamespace(i);
+            if ("id".equals(reader.getAttributeLocalName(i)) && namespace != null && !namespace.isEmpty()) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    // xl/workbook.xml → xl/_rels/workbook.xml.rels
+    private static String relationshipsPath(String partPath) {
+        int slash = partPath.lastIndexOf('/');
+        return partPath.substring(0, slash + 1) + "_rels/" + partPath.substring(slash + 1) + ".rels";
+    }
+
+    // 關聯的 Target 可以是相對路徑（worksheets/sheet1.xml）或以 / 開頭的絕對路徑
+    private static String resolve(String baseDirectory, String target) {
+        String path = target.startsWith("/") ? target.substring(1) : baseDirectory + target;
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if ("..".equals(segment)) {
+                if (!segments.isEmpty()) {
+                    segments.remove(segments.size() - 1);
+                }
+            } else if (!segment.isEmpty() && !".".equals(segment)) {
+                segments.add(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    private static InputStream openEntry(ZipFile zip, String path) throws IOException {
+        ZipArchiveEntry entry = zip.getEntry(path);
+        if (entry == null) {
+            throw new IOException("Missing part " + path + " in workbook package");
+        }
+        return zip.getInputStream(entry);
+    }
+
+    private record Relationship(String type, String target) {
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.demo_api.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ExcelReaderServiceTest {
+
+	@Autowired
+	private ExcelReaderService excelReaderService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void engines_produceIdenticalSheets() throws IOException {
+		byte[] workbook = mixedWorkbook();
+
+		Map<String, Object> dom = excelReaderService.readExcelData(workbook, ExcelReaderService.ENGINE_DOM);
+		Map<String, Object> sax = excelReaderService.readExcelData(workbook, ExcelReaderService.ENGINE_SAX);
+		Map<String, Object> parallel = excelReaderService.readExcelData(workbook, ExcelReaderService.ENGINE_PARALLEL);
+
+		assertThat(dom).containsEntry("status", "success").containsEntry("read_engine", ExcelReaderService.ENGINE_DOM);
+		assertThat(sax).containsEntry("status", "success").containsEntry("read_engine", ExcelReaderService.ENGINE_SAX);
+		assertThat(parallel).containsEntry("status", "success").containsEntry("read_engine", ExcelReaderService.ENGINE_PARALLEL);
+		assertThat(sax.get("sheets")).isEqualTo(dom.get("sheets"));
+		assertThat(parallel.get("sheets")).isEqualTo(dom.get("sheets"));
+		assertThat(sax.get("number_of_sheets")).isEqualTo(2);
+		assertThat(parallel.get("number_of_sheets")).isEqualTo(2);
+	}
+
+	@Test
+	void engines_formatEachCellType() throws IOException {
+		byte[] workbook = mixedWorkbook();
+
+		for (String engine : new String[] {ExcelReaderService.ENGINE_DOM, ExcelReaderService.ENGINE_SAX,
+				ExcelReaderService.ENGINE_PARALLEL}) {
+			List<?> sheets = (List<?>) excelReaderService.readExcelData(workbook, engine).get("sheets");
+			Map<?, ?> values = (Map<?, ?>) sheets.get(0);
+			List<?> rows = (List<?>) values.get("rows");
+
+			assertThat(values.get("sheet_name")).as(engine).isEqualTo("Values");
+			assertThat(values.get("total_rows")).as(engine).isEqualTo(5);
+			assertThat(rows.get(2)).as(engine).isEqualTo(
+					List.of("row 2", "20", "2469", "2024-02-15", "TRUE", "ERROR:#DIV/0!", "B3*2", "", "end"));
+			// 缺少的儲存格補成空字串，後面的值留在原本的欄位
+			assertThat(rows.get(4)).as(engine).isEqualTo(List.of("sparse", "", "", "", "", "", "", "", "99"));
+
+			Map<?, ?> second = (Map<?, ?>) sheets.get(1);
+			assertThat(second.get("rows")).as(engine)
+					.isEqualTo(List.of(List.of("Name", "Total"), List.of("sum", "SUM(Values!B2:B4)")));
+		}
+	}
+
+	@Test
+	void columnar_domAndSaxProduceSameColumns() throws IOException {
+		byte[] workbook = columnarWorkbook();
+		ExcelReadOptions columnar = new ExcelReadOptions(null, null, null, null, ExcelReadOptions.LAYOUT_COLUMNAR);
+
+		JsonNode dom = toJson(excelReaderService.readExcelData(workbook, ExcelReaderService.ENGINE_DOM, columnar));
+		JsonNode sax = toJson(excelReaderService.readExcelData(workbook, ExcelReaderService.ENGINE_SAX, columnar));
+		assertThat(sax.get("sheets")).isEqualTo(dom.get("sheets"));
+
+		JsonNode sheet = dom.get("sheets").get(0);
+		JsonNode columns = sheet.get("columns");
+		// 結尾兩列只有樣式，仍計入列數並在每一欄記為空白
+		assertThat(sheet.get("data_rows").asInt()).isEqualTo(6);
+		assertThat(columns.get(0).get("type").asText()).isEqualTo("integer");
+		assertThat(columns.get(0).get("null_count").asInt()).isEqualTo(2);
+		assertThat(columns.get(1).get("type").asText()).isEqualTo("number");
+		assertThat(columns.get(2).get("type").asText()).isEqualTo("string");
+		assertThat(columns.get(2).get("dictionary").toString()).isEqualTo("[\"5\",\"five\",\"true\"]");
+		assertThat(columns.get(2).get("codes").toString()).isEqualTo("[0,1,2,0,-1,-1]");
+		assertThat(columns.get(3).get("type").asText()).isEqualTo("date");
+		assertThat(columns.get(4).get("stats").get("true_count").asInt()).isEqualTo(2);
+		assertThat(columns.get(5).get("codes").toString()).isEqualTo("[0,1,0,0,-1,-1]");
+	}
+
+	private JsonNode toJson(Map<String, Object> result) throws IOException {
+		return objectMapper.readTree(objectMapper.writeValueAsString(result));
+	}
+
+	private static byte[] columnarWorkbook() throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			CellStyle dateStyle = workbook.createCellStyle();
+			dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+
+			Sheet sheet = workbook.createSheet("Columnar");
+			Row header = sheet.createRow(0);
+			String[] headers = {"Id", "Amount", "Mixed", "When", "Flag", "Region"};
+			for (int i = 0; i < headers.length; i++) {
+				header.createCell(i).setCellValue(headers[i]);
+			}
+			Object[][] data = {
+					{1, 10, 5, LocalDate.of(2024, 1, 15), true, "north"},
+					{2, 12.5, "five", LocalDate.of(2024, 2, 15), false, "south"},
+					{3, null, true, null, null, "north"},
+					{4, 7, 5, LocalDate.of(2024, 3, 1), true, "north"},
+			};
+			for (int r = 0; r < data.length; r++) {
+				Row row = sheet.createRow(r + 1);
+				for (int c = 0; c < data[r].length; c++) {
+					Object value = data[r][c];
+					if (value == null) {
+						continue;
+					}
+					Cell cell = row.createCell(c);
+					if (value instanceof Number number) {
+						cell.setCellValue(number.doubleValue());
+					} else if (value instanceof Boolean flag) {
+						cell.setCellValue(flag);
+					} else if (value instanceof LocalDate date) {
+						cell.setCellValue(date);
+						cell.setCellStyle(dateStyle);
+					} else {
+						cell.setCellValue(value.toString());
+					}
+				}
+			}
+			// 結尾只有樣式、沒有值的列
+			for (int r = data.length + 1; r <= data.length + 2; r++) {
+				sheet.createRow(r).createCell(1).setCellStyle(dateStyle);
+			}
+
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			workbook.write(outputStream);
+			return outputStream.toByteArray();
+		}
+	}
+
+	private static byte[] mixedWorkbook() throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			CellStyle dateStyle = workbook.createCellStyle();
+			dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+			CellStyle decimalStyle = workbook.createCellStyle();
+			decimalStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("#,##0.00"));
+
+			Sheet values = workbook.createSheet("Values");
+			Row header = values.createRow(0);
+			String[] headers = {"Text", "Number", "Decimal", "Date", "Flag", "Error", "Formula", "Blank", "After"};
+			for (int i = 0; i < headers.length; i++) {
+				header.createCell(i).setCellValue(headers[i]);
+			}
+			for (int r = 1; r <= 3; r++) {
+				Row row = values.createRow(r);
+				row.createCell(0).setCellValue("row " + r);
+				row.createCell(1).setCellValue(r * 10);
+				Cell decimal = row.createCell(2);
+				decimal.setCellValue(r * 1234.5);
+				decimal.setCellStyle(decimalStyle);
+				Cell date = row.createCell(3);
+				date.setCellValue(LocalDate.of(2024, r, 15));
+				date.setCellStyle(dateStyle);
+				row.createCell(4).setCellValue(r % 2 == 0);
+				row.createCell(5).setCellErrorValue(FormulaError.DIV0.getCode());
+				row.createCell(6).setCellFormula("B" + (r + 1) + "*2");
+				// 有樣式但沒有值的空白儲存格
+				row.createCell(7).setCellStyle(decimalStyle);
+				row.createCell(8).setCellValue("end");
+			}
+			// 中間缺少儲存格的列
+			Row sparse = values.createRow(4);
+			sparse.createCell(0).setCellValue("sparse");
+			sparse.createCell(8).setCellValue(99);
+
+			Sheet second = workbook.createSheet("Second");
+			second.createRow(0).createCell(0).setCellValue("Name");
+			second.getRow(0).createCell(1).setCellValue("Total");
+			Row total = second.createRow(1);
+			total.createCell(0).setCellValue("sum");
+			total.createCell(1).setCellFormula("SUM(Values!B2:B4)");
+
+			workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			workbook.write(outputStream);
+			return outputStream.toByteArray();
+		}
+	}
+}
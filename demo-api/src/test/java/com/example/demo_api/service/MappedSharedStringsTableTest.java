@@ -0,0 +1,126 @@
+package com.example.demo_api.service;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackagingURIHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedSharedStringsTableTest {
+
+	private static final String SHARED_STRINGS_PART = "/xl/sharedStrings.xml";
+
+	private static final String SHARED_STRINGS = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+			+ "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"9\" uniqueCount=\"7\">"
+			+ "<si><t>plain</t></si>"
+			// rich text：各 run 的文字依序串接，格式不保留
+			+ "<si><r><rPr><b/><sz val=\"11\"/></rPr><t>bold</t></r><r><t xml:space=\"preserve\"> and plain </t></r></si>"
+			// 讀音標示（rPh）不計入字串
+			+ "<si><t>漢字</t><rPh sb=\"0\" eb=\"2\"><t>カンジ</t></rPh><phoneticPr fontId=\"1\"/></si>"
+			+ "<si/>"
+			+ "<si><t></t></si>"
+			+ "<si><t>emoji 😀 &amp; &lt;tag&gt;</t></si>"
+			+ "<si><t xml:space=\"preserve\">line one\nline two</t></si>"
+			+ "</sst>";
+
+	@Test
+	void matchesReadOnlySharedStringsTable() throws Exception {
+		try (OPCPackage pkg = openPackage(SHARED_STRINGS)) {
+			PackagePart part = sharedStringsPart(pkg);
+			ReadOnlySharedStringsTable expected = new ReadOnlySharedStringsTable(part, false);
+
+			try (MappedSharedStringsTable table = MappedSharedStringsTable.load(part, 2)) {
+				assertThat(table.getCount()).isEqualTo(expected.getCount()).isEqualTo(9);
+				assertThat(table.getUniqueCount()).isEqualTo(expected.getUniqueCount()).isEqualTo(7);
+				// 快取只保留 2 個字串，重複讀取時大多從 mmap 檔案重新解碼
+				for (int round = 0; round < 2; round++) {
+					for (int i = 0; i < 7; i++) {
+						assertThat(table.getItemAt(i).getString()).as("index %d", i)
+								.isEqualTo(expected.getItemAt(i).getString());
+					}
+				}
+				assertThat(table.getItemAt(1).getString()).isEqualTo("bold and plain ");
+				assertThat(table.getItemAt(2).getString()).isEqualTo("漢字");
+				assertThat(table.getItemAt(3).getString()).isEmpty();
+				assertThat(table.getItemAt(4).getString()).isEmpty();
+				assertThatThrownBy(() -> table.getItemAt(7)).isInstanceOf(IndexOutOfBoundsException.class);
+			}
+		}
+	}
+
+	@Test
+	void deletesTempFilesOnClose() throws Exception {
+		Set<Path> before = tempFiles();
+		try (OPCPackage pkg = openPackage(SHARED_STRINGS)) {
+			MappedSharedStringsTable table = MappedSharedStringsTable.load(sharedStringsPart(pkg), 10);
+			Set<Path> created = tempFiles();
+			created.removeAll(before);
+			assertThat(created).hasSize(2);
+
+			table.close();
+
+			assertThat(created).allSatisfy(file -> assertThat(file).doesNotExist());
+		}
+	}
+
+	@Test
+	void deletesTempFilesWhenParsingFails() throws Exception {
+		Set<Path> before = tempFiles();
+		String truncated = SHARED_STRINGS.substring(0, SHARED_STRINGS.indexOf("<si/>"));
+		try (OPCPackage pkg = openPackage(truncated)) {
+			PackagePart part = sharedStringsPart(pkg);
+
+			assertThatThrownBy(() -> MappedSharedStringsTable.load(part, 10)).isInstanceOf(SAXException.class);
+		}
+
+		Set<Path> leftover = tempFiles();
+		leftover.removeAll(before);
+		assertThat(leftover).isEmpty();
+	}
+
+	private static Set<Path> tempFiles() throws IOException {
+		try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+			return new HashSet<>(files.filter(file -> file.getFileName().toString().startsWith("demo-api-sst-")).toList());
+		}
+	}
+
+	private static PackagePart sharedStringsPart(OPCPackage pkg) throws Exception {
+		return pkg.getPart(PackagingURIHelper.createPartName(SHARED_STRINGS_PART));
+	}
+
+	// 只含 [Content_Types].xml 與 sharedStrings.xml 的最小 package
+	private static OPCPackage openPackage(String sharedStrings) throws Exception {
+		String contentTypes = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+				+ "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+				+ "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+				+ "<Override PartName=\"" + SHARED_STRINGS_PART + "\" ContentType="
+				+ "\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>"
+				+ "</Types>";
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(outputStream)) {
+			zip.putNextEntry(new ZipEntry("[Content_Types].xml"));
+			zip.write(contentTypes.getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+			zip.putNextEntry(new ZipEntry(SHARED_STRINGS_PART.substring(1)));
+			zip.write(sharedStrings.getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+		}
+		return OPCPackage.open(new ByteArrayInputStream(outputStream.toByteArray()));
+	}
+}
@@ -0,0 +1,187 @@
+package com.example.demo_api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TypedColumnTest {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	@Test
+	void integers_stayInteger() throws IOException {
+		TypedColumn column = new TypedColumn("Qty");
+		column.addInteger(0, 3);
+		column.addNumber(1, 5.0);
+		column.addInteger(2, -2);
+
+		JsonNode json = toJson(column);
+
+		assertThat(column.getType()).isEqualTo(TypedColumn.Type.INTEGER);
+		assertThat(json.get("type").asText()).isEqualTo("integer");
+		assertThat(values(json)).containsExactly("3", "5", "-2");
+		assertThat(json.get("stats").get("min").asLong()).isEqualTo(-2);
+		assertThat(json.get("stats").get("max").asLong()).isEqualTo(5);
+		assertThat(json.get("stats").get("sum").asLong()).isEqualTo(6);
+		assertThat(json.get("stats").get("mean").asDouble()).isEqualTo(2.0);
+	}
+
+	@Test
+	void integer_upgradesToNumber() throws IOException {
+		TypedColumn column = new TypedColumn("Price");
+		column.addInteger(0, 10);
+		column.addNumber(1, 2.5);
+		// NUMBER 之後的整數值不再降回 integer
+		column.addInteger(2, 4);
+
+		JsonNode json = toJson(column);
+
+		assertThat(column.getType()).isEqualTo(TypedColumn.Type.NUMBER);
+		assertThat(values(json)).containsExactly("10.0", "2.5", "4.0");
+		assertThat(json.get("stats").get("sum").asDouble()).isEqualTo(16.5);
+		assertThat(json.get("stats").get("min").asDouble()).isEqualTo(2.5);
+	}
+
+	@Test
+	void mixedTypes_reencodeAsStrings() throws IOException {
+		TypedColumn column = new TypedColumn("Mixed");
+		column.addInteger(0, 7);
+		column.addBoolean(1, true);
+		column.addInteger(3, 7);
+		column.addDate(4, 45306.0);
+		column.addString(5, "x");
+
+		JsonNode json = toJson(column);
+
+		assertThat(column.getType()).isEqualTo(TypedColumn.Type.STRING);
+		assertThat(values(json.get("dictionary"))).containsExactly("7", "true", "2024-01-15", "x");
+		// 重複的 7 共用同一個 code，空白列為 -1
+		assertThat(values(json.get("codes"))).containsExactly("0", "1", "-1", "0", "2", "3");
+		assertThat(json.get("null_count").asInt()).isEqualTo(1);
+		assertThat(json.get("stats").get("distinct_count").asInt()).isEqualTo(4);
+		assertThat(json.get("stats").get("top_values").get("7").asInt()).isEqualTo(2);
+	}
+
+	@Test
+	void blanks_trackedInPresentBitmap() throws IOException {
+		TypedColumn column = new TypedColumn("Flag");
+		column.addBoolean(1, true);
+		column.addBoolean(2, false);
+		column.addBoolean(4, true);
+		column.finish(7);
+
+		JsonNode json = toJson(column);
+
+		assertThat(column.size()).isEqualTo(7);
+		assertThat(column.nullCount()).isEqualTo(4);
+		assertThat(values(json)).containsExactly("null", "true", "false", "null", "true", "null", "null");
+		assertThat(json.get("stats").get("true_count").asInt()).isEqualTo(2);
+	}
+
+	@Test
+	void dates_writtenAsIsoText() throws IOException {
+		TypedColumn column = new TypedColumn("Date");
+		column.addDate(0, 45306.0);
+		column.addDate(1, 45306.5);
+
+		JsonNode json = toJson(column);
+
+		assertThat(values(json)).containsExactly("2024-01-15", "2024-01-15T12:00");
+		assertThat(json.get("stats").get("min").asText()).isEqualTo("2024-01-15");
+		assertThat(json.get("stats").get("max").asText()).isEqualTo("2024-01-15T12:00");
+	}
+
+	@Test
+	void emptyColumn_hasNoStats() throws IOException {
+		TypedColumn column = new TypedColumn("Empty");
+		column.finish(2);
+
+		JsonNode json = toJson(column);
+
+		assertThat(json.get("type").asText()).isEqualTo("empty");
+		assertThat(values(json)).containsExactly("null", "null");
+		assertThat(json.get("stats").size()).isZero();
+	}
+
+	@Test
+	void sharedStrings_lookedUpOncePerIndex() throws IOException {
+		CountingSharedStrings sharedStrings = new CountingSharedStrings("north", "south");
+		TypedColumn column = new TypedColumn("Region");
+		column.addSharedString(0, 0, sharedStrings);
+		column.addSharedString(1, 1, sharedStrings);
+		column.addSharedString(2, 0, sharedStrings);
+		column.addSharedString(3, 0, sharedStrings);
+		// 內容與 shared string 相同的 inline 字串共用 dictionary 位置
+		column.addString(4, "south");
+
+		JsonNode json = toJson(column);
+
+		assertThat(sharedStrings.lookups).isEqualTo(2);
+		assertThat(values(json.get("dictionary"))).containsExactly("north", "south");
+		assertThat(values(json.get("codes"))).containsExactly("0", "1", "0", "0", "1");
+	}
+
+	@Test
+	void sharedStrings_reencodedAfterTypeChange() throws IOException {
+		CountingSharedStrings sharedStrings = new CountingSharedStrings("a");
+		TypedColumn column = new TypedColumn("Code");
+		column.addInteger(0, 1);
+		column.addSharedString(1, 0, sharedStrings);
+		column.addSharedString(2, 0, sharedStrings);
+
+		JsonNode json = toJson(column);
+
+		assertThat(sharedStrings.lookups).isEqualTo(1);
+		assertThat(values(json.get("dictionary"))).containsExactly("1", "a");
+		assertThat(values(json.get("codes"))).containsExactly("0", "1", "1");
+	}
+
+	private static JsonNode toJson(TypedColumn column) throws IOException {
+		StringWriter writer = new StringWriter();
+		try (JsonGenerator generator = MAPPER.getFactory().createGenerator(writer)) {
+			column.writeTo(generator);
+		}
+		return MAPPER.readTree(writer.toString());
+	}
+
+	private static List<String> values(JsonNode json) {
+		JsonNode array = json.has("values") ? json.get("values") : json;
+		return array.valueStream().map(JsonNode::asText).toList();
+	}
+
+	private static final class CountingSharedStrings implements SharedStrings {
+
+		private final String[] strings;
+		private int lookups;
+
+		CountingSharedStrings(String... strings) {
+			this.strings = strings;
+		}
+
+		@Override
+		public RichTextString getItemAt(int idx) {
+			lookups++;
+			return new XSSFRichTextString(strings[idx]);
+		}
+
+		@Override
+		public int getCount() {
+			return strings.length;
+		}
+
+		@Override
+		public int getUniqueCount() {
+			return strings.length;
+		}
+	}
+}
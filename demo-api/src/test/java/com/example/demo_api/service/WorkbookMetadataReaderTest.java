@@ -0,0 +1,183 @@
+package com.example.demo_api.service;
+
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WorkbookMetadataReaderTest {
+
+	private static final String PACKAGE_RELATIONSHIPS = "http://schemas.openxmlformats.org/package/2006/relationships";
+	private static final String TRANSITIONAL_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+	private static final String TRANSITIONAL_RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+	private static final String STRICT_MAIN = "http://purl.oclc.org/ooxml/spreadsheetml/main";
+	private static final String STRICT_RELATIONSHIPS = "http://purl.oclc.org/ooxml/officeDocument/relationships";
+
+	@Test
+	void resolvesRelativeAbsoluteAndParentTargets() throws Exception {
+		Map<String, String> parts = new LinkedHashMap<>();
+		parts.put("_rels/.rels", relationships(
+				relationship("rId1", TRANSITIONAL_RELATIONSHIPS + "/officeDocument", "xl/workbook.xml")));
+		parts.put("xl/workbook.xml", workbook(TRANSITIONAL_MAIN, TRANSITIONAL_RELATIONSHIPS,
+				"<sheet name=\"Relative\" sheetId=\"1\" r:id=\"rId1\"/>"
+						+ "<sheet name=\"Absolute\" sheetId=\"2\" state=\"hidden\" r:id=\"rId2\"/>"
+						+ "<sheet name=\"Parent\" sheetId=\"3\" r:id=\"rId3\"/>"));
+		parts.put("xl/_rels/workbook.xml.rels", relationships(
+				relationship("rId1", TRANSITIONAL_RELATIONSHIPS + "/worksheet", "worksheets/sheet1.xml"),
+				relationship("rId2", TRANSITIONAL_RELATIONSHIPS + "/worksheet", "/xl/worksheets/sheet2.xml"),
+				relationship("rId3", TRANSITIONAL_RELATIONSHIPS + "/worksheet", "../xl/./worksheets/sheet3.xml")));
+		parts.put("xl/worksheets/sheet1.xml", worksheet(TRANSITIONAL_MAIN, "<dimension ref=\"A1:C10\"/>", ""));
+		parts.put("xl/worksheets/sheet2.xml", worksheet(TRANSITIONAL_MAIN, "<dimension ref=\"B2:D5\"/>", ""));
+		parts.put("xl/worksheets/sheet3.xml", worksheet(TRANSITIONAL_MAIN, "<dimension ref=\"A1:A2\"/>", ""));
+
+		List<Map<String, Object>> sheets = readSheets(parts);
+
+		assertThat(sheets).extracting(sheet -> sheet.get("name")).containsExactly("Relative", "Absolute", "Parent");
+		assertThat(sheets.get(0)).containsEntry("index", 0).containsEntry("state", "visible")
+				.containsEntry("sheet_type", "worksheet").containsEntry("dimension", "A1:C10")
+				.containsEntry("row_count_source", WorkbookMetadataReader.SOURCE_DIMENSION)
+				.containsEntry("rows", 10).containsEntry("columns", 3).containsEntry("estimated_cells", 30L);
+		assertThat(sheets.get(1)).containsEntry("state", "hidden")
+				.containsEntry("rows", 4).containsEntry("columns", 3);
+		assertThat(sheets.get(2)).containsEntry("rows", 2).containsEntry("columns", 1);
+	}
+
+	@Test
+	void readsStrictPackageFromNonStandardLocation() throws Exception {
+		Map<String, String> parts = new LinkedHashMap<>();
+		parts.put("_rels/.rels", relationships(
+				relationship("rId1", STRICT_RELATIONSHIPS + "/officeDocument", "/content/book.xml")));
+		parts.put("content/book.xml", workbook(STRICT_MAIN, STRICT_RELATIONSHIPS,
+				"<sheet name=\"Data\" sheetId=\"1\" r:id=\"rIdData\"/>"));
+		parts.put("content/_rels/book.xml.rels", relationships(
+				relationship("rIdData", STRICT_RELATIONSHIPS + "/worksheet", "../sheets/data.xml")));
+		parts.put("sheets/data.xml", worksheet(STRICT_MAIN, "<dimension ref=\"A1:F50\"/>", ""));
+
+		List<Map<String, Object>> sheets = readSheets(parts);
+
+		assertThat(sheets).hasSize(1);
+		assertThat(sheets.get(0)).containsEntry("name", "Data").containsEntry("sheet_type", "worksheet")
+				.containsEntry("rows", 50).containsEntry("columns", 6);
+	}
+
+	@Test
+	void countsRowsWhenDimensionIsMissingOrSingleCell() throws Exception {
+		Map<String, String> parts = new LinkedHashMap<>();
+		parts.put("_rels/.rels", relationships(
+				relationship("rId1", TRANSITIONAL_RELATIONSHIPS + "/officeDocument", "xl/workbook.xml")));
+		parts.put("xl/workbook.xml", workbook(TRANSITIONAL_MAIN, TRANSITIONAL_RELATIONSHIPS,
+				"<sheet name=\"SingleCell\" sheetId=\"1\" r:id=\"rId1\"/>"
+						+ "<sheet name=\"NoDimension\" sheetId=\"2\" r:id=\"rId2\"/>"
+						+ "<sheet name=\"Empty\" sheetId=\"3\" r:id=\"rId3\"/>"));
+		parts.put("xl/_rels/workbook.xml.rels", relationships(
+				relationship("rId1", TRANSITIONAL_RELATIONSHIPS + "/worksheet", "worksheets/sheet1.xml"),
+				relationship("rId2", TRANSITIONAL_RELATIONSHIPS + "/worksheet", "worksheets/sheet2.xml"),
+				relationship("rId3", TRANSITIONAL_RELATIONSHIPS + "/worksheet", "worksheets/sheet3.xml")));
+		// 只寫 A1 的產生器：欄位數取第一列的 spans
+		parts.put("xl/worksheets/sheet1.xml", worksheet(TRANSITIONAL_MAIN, "<dimension ref=\"A1\"/>",
+				"<row r=\"1\" spans=\"1:4\"><c r=\"A1\"><v>1</v></c></row>"
+						+ "<row r=\"2\" spans=\"1:4\"><c r=\"A2\"><v>2</v></c></row>"
+						+ "<row r=\"3\" spans=\"1:4\"><c r=\"A3\"><v>3</v></c></row>"));
+		// 沒有 dimension 與 spans：欄位數為第一列的儲存格數
+		parts.put("xl/worksheets/sheet2.xml", worksheet(TRANSITIONAL_MAIN, "",
+				"<row r=\"1\"><c r=\"A1\"><v>1</v></c><c r=\"B1\"><v>2</v></c></row>"
+						+ "<row r=\"2\"><c r=\"A2\"><v>3</v></c><c r=\"B2\"><v>4</v></c><c r=\"C2\"><v>5</v></c></row>"));
+		parts.put("xl/worksheets/sheet3.xml", worksheet(TRANSITIONAL_MAIN, "<dimension ref=\"A1\"/>", ""));
+
+		List<Map<String, Object>> sheets = readSheets(parts);
+
+		assertThat(sheets.get(0)).containsEntry("dimension", "A1")
+				.containsEntry("row_count_source", WorkbookMetadataReader.SOURCE_ROWS)
+				.containsEntry("rows", 3).containsEntry("columns", 4).containsEntry("estimated_cells", 12L);
+		assertThat(sheets.get(1)).containsEntry("dimension", null)
+				.containsEntry("row_count_source", WorkbookMetadataReader.SOURCE_ROWS)
+				.containsEntry("rows", 2).containsEntry("columns", 2);
+		assertThat(sheets.get(2)).containsEntry("rows", 0).containsEntry("columns", 0)
+				.containsEntry("estimated_cells", 0L);
+	}
+
+	@Test
+	void reportsChartsheetsWithoutReadingThem() throws Exception {
+		Map<String, String> parts = new LinkedHashMap<>();
+		parts.put("_rels/.rels", relationships(
+				relationship("rId1", TRANSITIONAL_RELATIONSHIPS + "/officeDocument", "xl/workbook.xml")));
+		parts.put("xl/workbook.xml", workbook(TRANSITIONAL_MAIN, TRANSITIONAL_RELATIONSHIPS,
+				"<sheet name=\"Data\" sheetId=\"1\" r:id=\"rId1\"/>"
+						+ "<sheet name=\"Chart\" sheetId=\"2\" r:id=\"rId2\"/>"));
+		parts.put("xl/_rels/workbook.xml.rels", relationships(
+				relationship("rId1", TRANSITIONAL_RELATIONSHIPS + "/worksheet", "worksheets/sheet1.xml"),
+				// chartsheet part 不在 package 中，讀取就會失敗
+				relationship("rId2", TRANSITIONAL_RELATIONSHIPS + "/chartsheet", "chartsheets/sheet1.xml")));
+		parts.put("xl/worksheets/sheet1.xml", worksheet(TRANSITIONAL_MAIN, "<dimension ref=\"A1:B2\"/>", ""));
+
+		List<Map<String, Object>> sheets = readSheets(parts);
+
+		assertThat(sheets.get(0)).containsEntry("sheet_type", "worksheet").containsEntry("rows", 2);
+		assertThat(sheets.get(1)).containsEntry("index", 1).containsEntry("name", "Chart")
+				.containsEntry("sheet_type", "chartsheet")
+				.containsEntry("rows", 0).containsEntry("columns", 0).containsEntry("estimated_cells", 0L);
+	}
+
+	@Test
+	void rejectsPackageWithoutOfficeDocument() {
+		Map<String, String> parts = new LinkedHashMap<>();
+		parts.put("_rels/.rels", relationships(
+				relationship("rId1", TRANSITIONAL_RELATIONSHIPS + "/metadata/core-properties", "docProps/core.xml")));
+
+		assertThatThrownBy(() -> readSheets(parts))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("officeDocument");
+	}
+
+	private static List<Map<String, Object>> readSheets(Map<String, String> parts) throws IOException, XMLStreamException {
+		try (ZipFile zip = new ZipFile(new SeekableInMemoryByteChannel(zip(parts)))) {
+			return WorkbookMetadataReader.readSheets(zip);
+		}
+	}
+
+	private static byte[] zip(Map<String, String> parts) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(outputStream)) {
+			for (Map.Entry<String, String> part : parts.entrySet()) {
+				zip.putNextEntry(new ZipEntry(part.getKey()));
+				zip.write(part.getValue().getBytes(StandardCharsets.UTF_8));
+				zip.closeEntry();
+			}
+		}
+		return outputStream.toByteArray();
+	}
+
+	private static String relationships(String... relationships) {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+				+ "<Relationships xmlns=\"" + PACKAGE_RELATIONSHIPS + "\">" + String.join("", relationships)
+				+ "</Relationships>";
+	}
+
+	private static String relationship(String id, String type, String target) {
+		return "<Relationship Id=\"" + id + "\" Type=\"" + type + "\" Target=\"" + target + "\"/>";
+	}
+
+	private static String workbook(String mainNamespace, String relationshipNamespace, String sheets) {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+				+ "<workbook xmlns=\"" + mainNamespace + "\" xmlns:r=\"" + relationshipNamespace + "\">"
+				+ "<sheets>" + sheets + "</sheets></workbook>";
+	}
+
+	private static String worksheet(String mainNamespace, String dimension, String rows) {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+				+ "<worksheet xmlns=\"" + mainNamespace + "\">" + dimension
+				+ "<sheetData>" + rows + "</sheetData></worksheet>";
+	}
+}
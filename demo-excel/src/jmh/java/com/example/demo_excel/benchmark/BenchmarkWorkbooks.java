@@ -0,0 +1,45 @@
+package com.example.demo_excel.benchmark;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+// 產生 fillExcelWithData 的輸入模板：標題行加上 rows 列既有資料，
+// 模擬 demo-api 上傳已含資料的檔案，讓載入與寫出成本隨列數、欄數成長
+final class BenchmarkWorkbooks {
+
+    private BenchmarkWorkbooks() {
+    }
+
+    static byte[] createTemplate(int rows, int columns) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(null, 100, true, true);
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("員工資料");
+
+            Row headerRow = sheet.createRow(0);
+            for (int j = 0; j < columns; j++) {
+                headerRow.createCell(j).setCellValue("欄位" + (j + 1));
+            }
+
+            for (int i = 1; i <= rows; i++) {
+                Row row = sheet.createRow(i);
+                for (int j = 0; j < columns; j++) {
+                    if (j % 2 == 0) {
+                        row.createCell(j).setCellValue("值" + (i % 100) + "-" + j);
+                    } else {
+                        row.createCell(j).setCellValue(i * 31L + j);
+                    }
+                }
+            }
+
+            workbook.write(outputStream);
+            return outputStream.toByteArray();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+}
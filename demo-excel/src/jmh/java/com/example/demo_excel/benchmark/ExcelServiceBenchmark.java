@@ -0,0 +1,125 @@
+package com.example.demo_excel.benchmark;
+
+import com.example.demo_excel.report.ReportParameters;
+import com.example.demo_excel.report.ReportRowSourceRegistry;
+import com.example.demo_excel.report.SampleRowSource;
+import com.example.demo_excel.report.SyntheticRowSource;
+import com.example.demo_excel.service.ExcelMetrics;
+import com.example.demo_excel.service.ExcelService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ExcelService 產生與填充熱點，以 -prof gc 觀察每次操作的配置量（gc.alloc.rate.norm）；
+// 輸出寫到 nullOutputStream，只量測 workbook 建立與 zip 壓縮
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ExcelServiceBenchmark {
+
+    private ExcelService excelService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticRowSource syntheticRowSource = new SyntheticRowSource();
+        ReflectionTestUtils.setField(syntheticRowSource, "defaultRows", 1000);
+        ReflectionTestUtils.setField(syntheticRowSource, "maxRows", Integer.MAX_VALUE);
+
+        ExcelMetrics excelMetrics = new ExcelMetrics();
+        ReflectionTestUtils.setField(excelMetrics, "meterRegistry", new SimpleMeterRegistry());
+
+        excelService = new ExcelService();
+        ReflectionTestUtils.setField(excelService, "excelMetrics", excelMetrics);
+        ReflectionTestUtils.setField(excelService, "rowSourceRegistry",
+                new ReportRowSourceRegistry(List.of(new SampleRowSource(), syntheticRowSource)));
+        ReflectionTestUtils.setField(excelService, "defaultReportEngine", ExcelService.ENGINE_SXSSF);
+        ReflectionTestUtils.setField(excelService, "sxssfRowWindow", 100);
+        ReflectionTestUtils.setField(excelService, "sxssfCompressTempFiles", true);
+        ReflectionTestUtils.setField(excelService, "defaultCompression", ExcelService.COMPRESSION_DEFAULT);
+    }
+
+    // 模板的列數與欄數，只套用在 fillExcelWithData
+    @State(Scope.Benchmark)
+    public static class TemplateState {
+
+        @Param({"10", "1000", "100000", "1000000"})
+        private int rows;
+
+        @Param({"6", "24"})
+        private int columns;
+
+        private byte[] template;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            template = BenchmarkWorkbooks.createTemplate(rows, columns);
+        }
+    }
+
+    // synthetic 報表的列數與產生引擎（欄位固定為員工資料 6 欄）
+    @State(Scope.Benchmark)
+    public static class ReportState {
+
+        @Param({"10", "1000", "100000", "1000000"})
+        private int rows;
+
+        @Param({ExcelService.ENGINE_XSSF, ExcelService.ENGINE_SXSSF, ExcelService.ENGINE_DIRECT})
+        private String engine;
+    }
+
+    // 輸出壓縮方式對產生時間的影響：固定 100000 列，只比較可調整壓縮等級的 sxssf / direct
+    @State(Scope.Benchmark)
+    public static class CompressionState {
+
+        @Param({"100000"})
+        private int rows;
+
+        @Param({ExcelService.ENGINE_SXSSF, ExcelService.ENGINE_DIRECT})
+        private String engine;
+
+        @Param({ExcelService.COMPRESSION_STORE, ExcelService.COMPRESSION_FAST,
+                ExcelService.COMPRESSION_DEFAULT, ExcelService.COMPRESSION_BEST})
+        private String compression;
+    }
+
+    // SAMPLE_DATA 固定 10 列 6 欄，不受列數參數影響
+    @Benchmark
+    public void generateSampleExcelToStream() throws IOException {
+        excelService.generateSampleExcelToStream(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public byte[] fillExcelWithData(TemplateState state) throws IOException {
+        return excelService.fillExcelWithData(state.template);
+    }
+
+    // HTTP 端點使用的串流版本，不保留輸出內容
+    @Benchmark
+    public void fillExcelWithDataToStream(TemplateState state) throws IOException {
+        excelService.fillExcelWithData(new ByteArrayInputStream(state.template), state.template.length,
+                OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void generateReportExcelToStream(ReportState state) throws IOException {
+        excelService.generateReportExcelToStream(
+                new ReportParameters(SyntheticRowSource.REPORT_TYPE, state.rows, 42L),
+                state.engine, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void generateReportExcelToStreamCompression(CompressionState state) throws IOException {
+        excelService.generateReportExcelToStream(
+                new ReportParameters(SyntheticRowSource.REPORT_TYPE, state.rows, 42L),
+                state.engine, state.compression, OutputStream.nullOutputStream());
+    }
+}
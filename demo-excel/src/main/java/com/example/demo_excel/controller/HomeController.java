@@ -1,10 +1,18 @@
 package com.example.demo_excel.controller;
 
+import com.example.demo_excel.service.CachedReport;
 import com.example.demo_excel.service.ExcelService;
+import com.example.demo_excel.service.ExportJob;
+import com.example.demo_excel.service.ExportJobService;
+import com.example.demo_excel.service.FileLeases;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -12,16 +20,47 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 public class HomeController {
     
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+    
+    // Tomcat 在 controller 回傳、送出標頭後於同一個執行緒以檔名開啟 sendfile 的檔案，之後刪除不影響傳輸；
+    // Tomcat 不通知 sendfile 何時結束，租用保留到遠超過標頭寫出逾時的時間後歸還
+    private static final Duration SENDFILE_LEASE = Duration.ofSeconds(120);
+    
     @Autowired
     private ExcelService excelService;
+    
+    @Autowired
+    private ExportJobService exportJobService;
+    
+    @Autowired
+    private FileLeases fileLeases;
+    
+    // 超過此大小的上傳模板先存成暫存檔，以隨機存取方式開啟
+    @Value("${excel.fill.spool-threshold-bytes:2097152}")
+    private long fillSpoolThresholdBytes;
 
     @GetMapping("/")
     public Map<String, Object> home() {
@@ -32,20 +71,24 @@ public class HomeController {
     }
     
     @GetMapping("/excel/generate-bytes")
-    public ResponseEntity<byte[]> generateExcelBytes(@RequestParam(defaultValue = "sample") String type) {
+    public ResponseEntity<byte[]> generateExcelBytes(@RequestParam(defaultValue = "sample") String type,
+                                                     @RequestParam(defaultValue = "0") int rows,
+                                                     @RequestParam(required = false) String compression,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            byte[] excelData;
-            
-            if ("report".equals(type)) {
-                excelData = excelService.generateReportExcel("月度");
-            } else {
-                excelData = excelService.generateSampleExcel();
+            // 相同 type / rows / compression 的報表只產生一次，之後由快取回傳
+            CachedReport report = excelService.getReport(type, rows, null, compression);
+            if (report.matchesETag(ifNoneMatch)) {
+                return notModified(report);
             }
             
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            if (report.getETag() != null) {
+                headers.setETag(report.getETag());
+            }
             
-            return new ResponseEntity<>(excelData, headers, HttpStatus.OK);
+            return new ResponseEntity<>(report.toByteArray(), headers, HttpStatus.OK);
             
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -55,29 +98,33 @@ public class HomeController {
     
     // 針對 ResponseEntity<Resource> 的優化實踐：
     // 1. 避免多次記憶體分配 - 不要先轉為 byte[] 再包裝成 Resource
-    // 2. 使用 ByteArrayOutputStream 直接建立 ByteArrayResource
+    // 2. 快取在 heap 時直接以同一個陣列建立 ByteArrayResource
     // 3. 設定正確的 Content-Length 和 Content-Disposition 標頭
     // 4. 適用於中小型檔案（建議 < 50MB）
     @GetMapping("/excel/generate-resource")
-    public ResponseEntity<Resource> generateExcelResource(@RequestParam(defaultValue = "sample") String type) {
+    public ResponseEntity<Resource> generateExcelResource(@RequestParam(defaultValue = "sample") String type,
+                                                          @RequestParam(defaultValue = "0") int rows,
+                                                          @RequestParam(required = false) String compression,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            ByteArrayResource resource;
-            
-            if ("report".equals(type)) {
-                // 優化版本：直接使用 ByteArrayOutputStream
-                ByteArrayOutputStream outputStream = excelService.generateReportExcelAsStream("月度");
-                resource = new ByteArrayResource(outputStream.toByteArray());
-            } else {
-                // 優化版本：直接使用 ByteArrayOutputStream
-                ByteArrayOutputStream outputStream = excelService.generateSampleExcelAsStream();
-                resource = new ByteArrayResource(outputStream.toByteArray());
+            CachedReport report = excelService.getReport(type, rows, null, compression);
+            if (report.matchesETag(ifNoneMatch)) {
+                return notModified(report);
             }
             
-            return ResponseEntity.ok()
+            // 快取在 heap 時直接包裝同一個陣列；在檔案時先開啟串流，之後被淘汰刪除也能讀完
+            Resource resource = report.isFileBacked()
+                    ? new InputStreamResource(report.openStream())
+                    : new ByteArrayResource(report.toByteArray());
+            
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .contentLength(resource.contentLength())
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"report.xlsx\"")
-                    .body(resource);
+                    .contentLength(report.size())
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"report.xlsx\"");
+            if (report.getETag() != null) {
+                builder.eTag(report.getETag());
+            }
+            return builder.body(resource);
                     
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -86,20 +133,41 @@ public class HomeController {
     
     // 真正的最佳實踐：使用 StreamingResponseBody 直接串流，避免記憶體中介
     @GetMapping("/excel/generate-stream")
-    public ResponseEntity<StreamingResponseBody> generateExcelStream(@RequestParam(defaultValue = "sample") String type) {
+    public ResponseEntity<StreamingResponseBody> generateExcelStream(HttpServletRequest request,
+                                                                     @RequestParam(defaultValue = "sample") String type,
+                                                                     @RequestParam(required = false) String engine,
+                                                                     @RequestParam(defaultValue = "0") int rows,
+                                                                     @RequestParam(required = false) String compression,
+                                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            StreamingResponseBody stream = outputStream -> {
-                if ("report".equals(type)) {
-                    excelService.generateReportExcelToStream("月度", outputStream);
-                } else {
-                    excelService.generateSampleExcelToStream(outputStream);
-                }
-            };
-            
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
             headers.setContentDispositionFormData("attachment", "report.xlsx");
             
+            CachedReport cached = excelService.findCachedReport(type, rows, engine, compression);
+            if (cached != null && cached.matchesETag(ifNoneMatch)) {
+                return notModified(cached);
+            }
+            
+            // 檔案快取命中時取得租用：回應寫出期間項目被淘汰或取代，檔案延後到租用歸還才刪除；
+            // 查到之後、取得租用之前就被刪除時視為未命中
+            if (cached == null || (cached.isFileBacked() && !fileLeases.acquire(cached.getFile()))) {
+                // 未命中：邊產生邊寫出，同時放入快取
+                StreamingResponseBody stream =
+                        outputStream -> excelService.generateAndCacheReport(type, rows, engine, compression, outputStream);
+                return ResponseEntity.ok()
+                        .headers(headers)
+                        .body(stream);
+            }
+            
+            headers.setETag(cached.getETag());
+            headers.setContentLength(cached.size());
+            if (cached.isFileBacked()) {
+                return sendLeasedFile(request, cached.getFile(), 0, cached.size(), ResponseEntity.ok().headers(headers));
+            }
+            
+            byte[] content = cached.toByteArray();
+            StreamingResponseBody stream = outputStream -> outputStream.write(content);
             return ResponseEntity.ok()
                     .headers(headers)
                     .body(stream);
@@ -109,22 +177,32 @@ public class HomeController {
         }
     }
     
-    // 接收 Excel 檔案，寫入 SAMPLE_DATA 後回傳 (使用 StreamingResponseBody 優化)
+    // 接收 Excel 檔案，寫入 SAMPLE_DATA 後回傳 (使用 StreamingResponseBody 優化)：
+    // 模板由 multipart 串流載入，大檔案先移到暫存檔再以隨機存取開啟；填充結果經 SXSSF 直接寫入回應，全程不建立完整檔案的 byte[]
     @PostMapping("/excel/fill-data")
-    public ResponseEntity<StreamingResponseBody> fillExcelWithData(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<StreamingResponseBody> fillExcelWithData(@RequestParam("file") MultipartFile file,
+                                                                   @RequestParam(required = false) String compression) {
         try {
             if (file.isEmpty()) {
                 return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
             }
             
-            // 讀取上傳的 Excel 檔案
-            byte[] inputExcelData = file.getBytes();
+            // 超過門檻的上傳移到自己的暫存檔（multipart 已在磁碟時只是搬移），在回應寫完後刪除
+            Path templateFile = file.getSize() > fillSpoolThresholdBytes ? spoolUpload(file) : null;
             
             // 建立 StreamingResponseBody 來串流回傳填充後的 Excel
             StreamingResponseBody stream = outputStream -> {
-                // 使用 ExcelService 填充資料並直接寫入輸出串流
-                byte[] filledExcelData = excelService.fillExcelWithData(inputExcelData);
-                outputStream.write(filledExcelData);
+                if (templateFile != null) {
+                    try {
+                        excelService.fillExcelWithData(templateFile, compression, outputStream);
+                    } finally {
+                        Files.deleteIfExists(templateFile);
+                    }
+                } else {
+                    try (InputStream templateStream = file.getInputStream()) {
+                        excelService.fillExcelWithData(templateStream, file.getSize(), compression, outputStream);
+                    }
+                }
                 outputStream.flush();
             };
             
@@ -142,4 +220,166 @@ public class HomeController {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+    
+    // 非同步匯出：提交後立即回應 202 與查詢位置，報表由背景 worker 依優先權產生並寫到本機檔案；
+    // 等待中的工作已達 excel.export.queue-capacity 時回應 503
+    @PostMapping("/excel/exports")
+    public ResponseEntity<Map<String, Object>> submitExport(@RequestParam(defaultValue = "report") String type,
+                                                            @RequestParam(defaultValue = "0") int rows,
+                                                            @RequestParam(required = false) String engine,
+                                                            @RequestParam(required = false) String compression,
+                                                            @RequestParam(defaultValue = ExportJobService.PRIORITY_NORMAL) String priority) {
+        try {
+            ExportJob job = exportJobService.submit(type, rows, engine, compression, priority);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/excel/exports/" + job.getId()))
+                    .body(job.toStatusMap());
+        } catch (RejectedExecutionException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("service", "demo-excel");
+            error.put("timestamp", LocalDateTime.now());
+            error.put("error", e.getMessage());
+            error.put("status", "rejected");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(error);
+        }
+    }
+    
+    // 查詢匯出狀態：queued / running / completed / failed，完成時附上 download_url
+    @GetMapping("/excel/exports/{id}")
+    public ResponseEntity<Map<String, Object>> getExport(@PathVariable String id) {
+        ExportJob job = exportJobService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toStatusMap());
+    }
+    
+    // 取消等待或執行中的工作，已完成的工作刪除檔案
+    @DeleteMapping("/excel/exports/{id}")
+    public ResponseEntity<Map<String, Object>> cancelExport(@PathVariable String id) {
+        ExportJob job = exportJobService.cancel(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toStatusMap());
+    }
+    
+    // 下載完成的匯出檔案：支援單一區段的 Range（206 / 416）與 If-Range，中斷的下載可從已收到的位置續傳；
+    // 下載期間持有檔案租用，工作過期清除或被取消時檔案延後刪除
+    @GetMapping("/excel/exports/{id}/file")
+    public ResponseEntity<StreamingResponseBody> downloadExport(HttpServletRequest request,
+                                                                @PathVariable String id,
+                                                                @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                                                                @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) {
+        ExportJob job = exportJobService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!job.isCompleted()) {
+            // 尚未完成（或已失敗），用戶端應先查詢狀態
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        
+        long size = job.size();
+        long start = 0;
+        long end = size - 1;
+        boolean partial = false;
+        // If-Range 與目前的 ETag 不同時忽略 Range，回傳完整檔案
+        if (range != null && (ifRange == null || ifRange.equals(job.getETag()))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // 多段 Range 需要 multipart/byteranges，續傳只會用到單一區段，其餘情況回傳完整檔案
+            if (ranges.size() == 1) {
+                start = ranges.get(0).getRangeStart(size);
+                end = ranges.get(0).getRangeEnd(size);
+                // 起點超出檔案大小時 getRangeEnd 會小於起點
+                if (start >= size || end < start) {
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                            .build();
+                }
+                partial = true;
+            }
+        }
+        
+        long length = end - start + 1;
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDispositionFormData("attachment", "report.xlsx");
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setETag(job.getETag());
+        headers.setContentLength(length);
+        if (partial) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        
+        if (!fileLeases.acquire(job.getFile())) {
+            // 檢查狀態之後檔案已被清除或取消
+            return ResponseEntity.notFound().build();
+        }
+        return sendLeasedFile(request, job.getFile(), start, length,
+                ResponseEntity.status(partial ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK).headers(headers));
+    }
+    
+    // 輸出 file 的 [start, start + length) 區段並歸還呼叫端取得的租用。
+    // 連接器支援 sendfile 時交給 Tomcat，由 kernel 從 page cache 直接寫到 socket，不經過 heap；
+    // 不支援時（例如 TLS 連線）先開啟檔案再歸還租用（已開啟的檔案刪除後仍可讀完），以 StreamingResponseBody 複製
+    private ResponseEntity<StreamingResponseBody> sendLeasedFile(HttpServletRequest request, Path file, long start, long length,
+                                                                 ResponseEntity.BodyBuilder builder) {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            // end 不包含在內
+            request.setAttribute(SENDFILE_END_ATTR, start + length);
+            fileLeases.releaseAfter(file, SENDFILE_LEASE);
+            return builder.build();
+        }
+        
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            fileLeases.release(file);
+        }
+        StreamingResponseBody stream = outputStream -> transferRange(channel, start, length, outputStream);
+        return builder.body(stream);
+    }
+    
+    // 輸出 channel 的 [position, position + count) 區段後關閉 channel；
+    // 目標是 servlet OutputStream，FileChannel.transferTo 會經過 heap 緩衝逐段複製
+    private static void transferRange(FileChannel channel, long position, long count, OutputStream outputStream) throws IOException {
+        try (channel) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long end = position + count;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, target);
+            }
+        }
+    }
+    
+    private Path spoolUpload(MultipartFile file) throws IOException {
+        Path templateFile = Files.createTempFile("demo-excel-template-", ".xlsx");
+        try {
+            file.transferTo(templateFile);
+            return templateFile;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(templateFile);
+            throw e;
+        }
+    }
+    
+    // If-None-Match 與快取內容相同時回傳 304，不產生也不傳送檔案
+    private <T> ResponseEntity<T> notModified(CachedReport report) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(report.getETag())
+                .build();
+    }
 }
\ No newline at end of file
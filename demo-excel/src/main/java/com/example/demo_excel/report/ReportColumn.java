@@ -0,0 +1,5 @@
+package com.example.demo_excel.report;
+
+// 報表欄位定義：標題、資料型別與預設欄寬（字元數）
+public record ReportColumn(String header, ReportColumnType type, int width) {
+}
@@ -0,0 +1,8 @@
+package com.example.demo_excel.report;
+
+// 欄位資料型別，決定寫入儲存格時使用的 setCellValue 與樣式
+public enum ReportColumnType {
+    STRING,
+    NUMBER,
+    DATE
+}
@@ -0,0 +1,9 @@
+package com.example.demo_excel.report;
+
+// 產生報表的請求參數；rows 僅對可指定列數的資料來源（如 synthetic）有效
+public record ReportParameters(String reportType, int rows, long seed) {
+
+    public static ReportParameters of(String reportType) {
+        return new ReportParameters(reportType, 0, 0L);
+    }
+}
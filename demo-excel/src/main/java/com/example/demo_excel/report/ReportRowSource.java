@@ -0,0 +1,18 @@
+package com.example.demo_excel.report;
+
+import java.util.Iterator;
+import java.util.List;
+
+// 報表列資料來源：依報表類型提供欄位定義與惰性產生的列
+// 列以 Object[] 表示，元素型別對應 ReportColumnType（String / Number / LocalDate，空值為 null）
+public interface ReportRowSource {
+
+    String reportType();
+
+    String sheetName();
+
+    List<ReportColumn> columns();
+
+    // 每次呼叫回傳新的 iterator，寫入端逐列拉取，不需一次產生全部資料
+    Iterator<Object[]> rows(ReportParameters parameters);
+}
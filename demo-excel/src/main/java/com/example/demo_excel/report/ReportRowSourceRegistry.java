@@ -0,0 +1,27 @@
+package com.example.demo_excel.report;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 依報表類型查找資料來源；未註冊的類型沿用 sample 資料
+@Component
+public class ReportRowSourceRegistry {
+
+    private final Map<String, ReportRowSource> sources = new HashMap<>();
+
+    @Autowired
+    public ReportRowSourceRegistry(List<ReportRowSource> rowSources) {
+        for (ReportRowSource source : rowSources) {
+            sources.put(source.reportType(), source);
+        }
+    }
+
+    public ReportRowSource get(String reportType) {
+        ReportRowSource source = sources.get(reportType);
+        return source != null ? source : sources.get(SampleRowSource.REPORT_TYPE);
+    }
+}
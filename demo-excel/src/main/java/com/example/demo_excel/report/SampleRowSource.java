@@ -0,0 +1,57 @@
+package com.example.demo_excel.report;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+// 固定 10 筆員工資料，對應原本的 SAMPLE_DATA
+@Component
+public class SampleRowSource implements ReportRowSource {
+
+    public static final String REPORT_TYPE = "sample";
+
+    static final List<ReportColumn> EMPLOYEE_COLUMNS = List.of(
+        new ReportColumn("ID", ReportColumnType.NUMBER, 8),
+        new ReportColumn("姓名", ReportColumnType.STRING, 12),
+        new ReportColumn("部門", ReportColumnType.STRING, 12),
+        new ReportColumn("薪資", ReportColumnType.NUMBER, 12),
+        new ReportColumn("入職日期", ReportColumnType.DATE, 14),
+        new ReportColumn("狀態", ReportColumnType.STRING, 10)
+    );
+
+    private static final Object[][] ROWS = {
+        {1L, "張三", "資訊部", 50000L, LocalDate.of(2023, 1, 15), "在職"},
+        {2L, "李四", "財務部", 48000L, LocalDate.of(2022, 12, 1), "在職"},
+        {3L, "王五", "人資部", 51000L, LocalDate.of(2021, 11, 20), "在職"},
+        {4L, "趙六", "行銷部", 47000L, LocalDate.of(2020, 10, 10), "離職"},
+        {5L, "陳七", "資訊部", 53000L, LocalDate.of(2023, 3, 5), "在職"},
+        {6L, "林八", "財務部", 49500L, LocalDate.of(2022, 8, 18), "在職"},
+        {7L, "周九", "人資部", 52000L, LocalDate.of(2021, 7, 30), "在職"},
+        {8L, "吳十", "行銷部", 46000L, LocalDate.of(2020, 6, 25), "離職"},
+        {9L, "鄭十一", "資訊部", 54000L, LocalDate.of(2023, 4, 12), "在職"},
+        {10L, "謝十二", "財務部", 50000L, LocalDate.of(2022, 5, 15), "在職"}
+    };
+
+    @Override
+    public String reportType() {
+        return REPORT_TYPE;
+    }
+
+    @Override
+    public String sheetName() {
+        return "Sample Data";
+    }
+
+    @Override
+    public List<ReportColumn> columns() {
+        return EMPLOYEE_COLUMNS;
+    }
+
+    @Override
+    public Iterator<Object[]> rows(ReportParameters parameters) {
+        return Arrays.asList(ROWS).iterator();
+    }
+}
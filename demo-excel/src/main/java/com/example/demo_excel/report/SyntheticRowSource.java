@@ -0,0 +1,77 @@
+package com.example.demo_excel.report;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+// 壓力測試用的合成資料：依 rows 參數即時產生 N 筆員工資料，不預先建立任何陣列
+@Component
+public class SyntheticRowSource implements ReportRowSource {
+
+    public static final String REPORT_TYPE = "synthetic";
+
+    private static final String[] SURNAMES = {"張", "李", "王", "趙", "陳", "林", "周", "吳", "鄭", "謝", "黃", "劉"};
+    private static final String[] GIVEN_NAMES = {"三", "四", "五", "六", "七", "八", "九", "十", "志明", "春嬌", "美玲", "建宏"};
+    private static final String[] DEPARTMENTS = {"資訊部", "財務部", "人資部", "行銷部", "業務部", "研發部"};
+    private static final String[] STATUSES = {"在職", "在職", "在職", "在職", "離職"};
+    private static final LocalDate FIRST_HIRE_DATE = LocalDate.of(2010, 1, 1);
+
+    @Value("${excel.report.synthetic.default-rows:1000}")
+    private int defaultRows;
+
+    // 單次請求可產生的列數上限，避免誤用造成過長的產生時間
+    @Value("${excel.report.synthetic.max-rows:5000000}")
+    private int maxRows;
+
+    @Override
+    public String reportType() {
+        return REPORT_TYPE;
+    }
+
+    @Override
+    public String sheetName() {
+        return "Synthetic Data";
+    }
+
+    @Override
+    public List<ReportColumn> columns() {
+        return SampleRowSource.EMPLOYEE_COLUMNS;
+    }
+
+    @Override
+    public Iterator<Object[]> rows(ReportParameters parameters) {
+        int requested = parameters.rows() > 0 ? parameters.rows() : defaultRows;
+        int total = Math.min(requested, maxRows);
+        SplittableRandom random = new SplittableRandom(parameters.seed());
+
+        return new Iterator<>() {
+            private int produced;
+
+            @Override
+            public boolean hasNext() {
+                return produced < total;
+            }
+
+            @Override
+            public Object[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                produced++;
+                return new Object[] {
+                    (long) produced,
+                    SURNAMES[random.nextInt(SURNAMES.length)] + GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)],
+                    DEPARTMENTS[random.nextInt(DEPARTMENTS.length)],
+                    30000L + random.nextInt(60) * 500L,
+                    FIRST_HIRE_DATE.plusDays(random.nextInt(5000)),
+                    STATUSES[random.nextInt(STATUSES.length)]
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo_excel.service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// 計算寫出的位元組數，供 excel.generate.bytes 使用；不關閉底層串流，由呼叫端負責
+class ByteCountingOutputStream extends FilterOutputStream {
+
+    private long count;
+
+    ByteCountingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        count += len;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    long getCount() {
+        return count;
+    }
+}
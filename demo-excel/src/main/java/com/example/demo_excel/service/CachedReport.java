@@ -0,0 +1,67 @@
+package com.example.demo_excel.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// 已產生的報表內容：存在 heap（data）或本機檔案（file），ETag 為內容 SHA-256 的前 128 bits；
+// 未放入快取的報表 eTag 為 null
+public final class CachedReport {
+
+    private final byte[] data;
+    private final Path file;
+    private final long size;
+    private final String eTag;
+
+    CachedReport(byte[] data, Path file, long size, String eTag) {
+        this.data = data;
+        this.file = file;
+        this.size = size;
+        this.eTag = eTag;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public boolean isFileBacked() {
+        return file != null;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // If-None-Match 可能為 *、逗號分隔的多個值或 weak ETag（W/"..."）
+    public boolean matchesETag(String ifNoneMatch) {
+        if (eTag == null || ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // heap 內容直接回傳同一個陣列，呼叫端不可修改
+    public byte[] toByteArray() throws IOException {
+        return data != null ? data : Files.readAllBytes(file);
+    }
+
+    // 回應需在回傳前先開啟內容：檔案開啟後即使被快取淘汰刪除仍可讀完，延後到寫出時才開啟可能已不存在
+    public InputStream openStream() throws IOException {
+        return data != null ? new ByteArrayInputStream(data) : Files.newInputStream(file);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo_excel.service;
+
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.time.LocalDate;
+
+// 欄寬估算：寫入儲存格時同步記錄每欄最寬的內容，寫完後一次設定欄寬，取代 autoSizeColumn。
+// autoSizeColumn 每欄都要重新掃過所有列並以 AWT 排版量測字型，寬表與大量列時成本很高，
+// SXSSF 也只能量測視窗內的列；這裡只依字元類別加權計算，不需要 AWT，串流寫入也能使用。
+// 寬度以預設字型（Calibri 11）的數字 '0' 為 1 個單位：中日韓全形字約 2 單位，i / l / . 等窄字約 0.5 單位
+final class ColumnWidthEstimator {
+
+    // 標題為 12pt 粗體，約為資料字型的 1.2 倍寬
+    private static final double HEADER_SCALE = 1.2;
+    // 與 autoSizeColumn 相近的左右留白
+    private static final double PADDING = 1.0;
+    // Excel 欄寬上限 255 字元
+    private static final int MAX_COLUMN_WIDTH = 255 * 256;
+    // yyyy-mm-dd：8 個數字加 2 個窄字元
+    private static final double DATE_WIDTH = 9.0;
+
+    private final double[] maxWidths;
+
+    ColumnWidthEstimator(int columns) {
+        this.maxWidths = new double[columns];
+    }
+
+    void trackHeader(int column, String text) {
+        update(column, textWidth(text) * HEADER_SCALE);
+    }
+
+    // 依值的型別估算：數值以一般格式的位數計算，日期為 yyyy-mm-dd，其他以 toString 的字元計算
+    void track(int column, Object value) {
+        if (value == null) {
+            return;
+        }
+        double width;
+        if (value instanceof Number number) {
+            width = numberWidth(number);
+        } else if (value instanceof LocalDate) {
+            width = DATE_WIDTH;
+        } else {
+            width = textWidth(value.toString());
+        }
+        update(column, width);
+    }
+
+    // 估算的欄寬（1/256 字元單位，與 Sheet.setColumnWidth 相同）；沒有內容的欄回傳 0
+    int getColumnWidth(int column) {
+        if (maxWidths[column] == 0) {
+            return 0;
+        }
+        return (int) Math.min(MAX_COLUMN_WIDTH, Math.round((maxWidths[column] + PADDING) * 256));
+    }
+
+    // 設定所有有內容的欄
+    void applyTo(Sheet sheet) {
+        for (int i = 0; i < maxWidths.length; i++) {
+            int width = getColumnWidth(i);
+            if (width > 0) {
+                sheet.setColumnWidth(i, width);
+            }
+        }
+    }
+
+    private void update(int column, double width) {
+        if (column < maxWidths.length && width > maxWidths[column]) {
+            maxWidths[column] = width;
+        }
+    }
+
+    // 多行文字取最寬的一行
+    static double textWidth(String text) {
+        double max = 0;
+        double line = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                max = Math.max(max, line);
+                line = 0;
+            } else {
+                line += charWidth(c);
+            }
+        }
+        return Math.max(max, line);
+    }
+
+    static double charWidth(char c) {
+        if (c < 0x80) {
+            if (c >= '0' && c <= '9') {
+                return 1.0;
+            }
+            switch (c) {
+                case 'i', 'j', 'l', 'I', '.', ',', ':', ';', '\'', '!', '|', ' ', '-', 'f', 't', 'r' -> {
+                    return 0.5;
+                }
+                case 'm', 'w', 'M', 'W', '@', '%' -> {
+                    return 1.5;
+                }
+                default -> {
+                    return c >= 'A' && c <= 'Z' ? 1.1 : 0.9;
+                }
+            }
+        }
+        // 中日韓文字、全形符號與全形英數（U+FF01–U+FF60）以兩個單位計算
+        if ((c >= 0x1100 && c <= 0x115F) || (c >= 0x2E80 && c <= 0xA4CF) || (c >= 0xAC00 && c <= 0xD7A3)
+                || (c >= 0xF900 && c <= 0xFAFF) || (c >= 0xFE30 && c <= 0xFE4F) || (c >= 0xFF01 && c <= 0xFF60)
+                || (c >= 0xFFE0 && c <= 0xFFE6)) {
+            return 2.0;
+        }
+        // 擴充區漢字等補充平面字元由一對 surrogate 組成，整個字算兩個單位
+        if (Character.isSurrogate(c)) {
+            return Character.isHighSurrogate(c) ? 2.0 : 0;
+        }
+        return 1.0;
+    }
+
+    // 整數直接計算位數，不建立字串；帶小數的值以 Excel 一般格式最多約 11 位有效數字估算
+    private static double numberWidth(Number number) {
+        double value = number.doubleValue();
+        double sign = value < 0 ? 0.5 : 0;
+        double abs = Math.abs(value);
+        if (abs == Math.rint(abs) && abs < 1e11) {
+            int digits = 1;
+            for (double limit = 10; abs >= limit; limit *= 10) {
+                digits++;
+            }
+            return digits + sign;
+        }
+        // 小數點 0.5 單位
+        return Math.min(String.valueOf(abs).length() - 1, 11) + 0.5 + sign;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo_excel.service;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.OutputStream;
+
+// 可指定輸出 zip 壓縮等級的 SXSSFWorkbook：write() 組出最終檔案時經過 createArchiveOutputStream，
+// 在這裡設定 Deflater 等級（0 = 只存不壓縮）。SXSSF 暫存檔的 gzip 壓縮（compressTempFiles）與此無關
+final class CompressingSXSSFWorkbook extends SXSSFWorkbook {
+
+    private final int deflateLevel;
+
+    CompressingSXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean compressTempFiles, int deflateLevel) {
+        super(workbook, rowAccessWindowSize, compressTempFiles);
+        this.deflateLevel = deflateLevel;
+    }
+
+    @Override
+    protected ZipArchiveOutputStream createArchiveOutputStream(OutputStream out) {
+        ZipArchiveOutputStream zipOutputStream = super.createArchiveOutputStream(out);
+        zipOutputStream.setLevel(deflateLevel);
+        return zipOutputStream;
+    }
+}
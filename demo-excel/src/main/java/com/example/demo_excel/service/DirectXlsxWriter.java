@@ -0,0 +1,337 @@
+package com.example.demo_excel.service;
+
+import com.example.demo_excel.report.ReportColumn;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.util.CellReference;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// 平面表格報表的輕量寫出引擎：不建立 POI 的 Workbook / Cell / XmlBeans 物件，直接把 OOXML 各 part 寫入 ZipOutputStream。
+// 工作表逐列輸出為 xl/worksheets/sheetN.xml，文字使用 inline string（不需要先收集 shared strings 表），
+// 字元直接編碼成 UTF-8 寫進固定大小的位元組緩衝區，每個儲存格不產生額外物件；樣式沿用 WorkbookStyles 預先序列化的 styles.xml。
+// 欄寬必須寫在 sheetData 之前，因此只使用欄位定義的寬度，不做寫入時的欄寬估算
+final class DirectXlsxWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 1900 日期系統的序號：1970-01-01 為 25569
+    private static final long EXCEL_EPOCH_DAY_OFFSET = 25569;
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    private static final String SPREADSHEETML_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String PACKAGE_RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    private final int deflateLevel;
+
+    // deflateLevel: 0（不壓縮）到 9（最小檔案），-1 為 Deflater 預設
+    DirectXlsxWriter(int deflateLevel) {
+        this.deflateLevel = deflateLevel;
+    }
+
+    // 寫出完整的 xlsx 到 outputStream（不關閉），單一工作表超過列數上限時換到下一個工作表；回傳寫入的儲存格數（含標題）
+    long write(String sheetName, List<ReportColumn> columns, Iterator<Object[]> rows, OutputStream outputStream)
+            throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        zip.setLevel(deflateLevel);
+        XmlOutput out = new XmlOutput(zip);
+
+        byte[][] columnNames = new byte[columns.size()][];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnNames[i] = CellReference.convertNumToColString(i).getBytes(StandardCharsets.US_ASCII);
+        }
+        int maxRowsPerSheet = SpreadsheetVersion.EXCEL2007.getMaxRows();
+        List<String> sheetNames = new ArrayList<>();
+        long cellsWritten = 0;
+
+        // 工作表先寫，數量確定後再寫 workbook.xml 與 [Content_Types].xml；zip 內 part 的順序不影響讀取
+        do {
+            sheetNames.add(sheetNames.isEmpty() ? sheetName : sheetName + " (" + (sheetNames.size() + 1) + ")");
+            zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml"));
+            writeSheetStart(out, columns, columnNames);
+            cellsWritten += columns.size();
+
+            int rowIndex = 1;
+            while (rowIndex < maxRowsPerSheet && rows.hasNext()) {
+                Object[] rowData = rows.next();
+                writeRow(out, rowIndex + 1, rowData, columnNames);
+                cellsWritten += rowData.length;
+                rowIndex++;
+            }
+
+            out.ascii("</sheetData></worksheet>");
+            out.flush();
+            zip.closeEntry();
+        } while (rows.hasNext());
+
+        writeEntry(zip, "xl/styles.xml", WorkbookStyles.stylesXml());
+        writeEntry(zip, "xl/workbook.xml", workbookXml(sheetNames));
+        writeEntry(zip, "xl/_rels/workbook.xml.rels", workbookRelationshipsXml(sheetNames.size()));
+        writeEntry(zip, "_rels/.rels", packageRelationshipsXml());
+        writeEntry(zip, "[Content_Types].xml", contentTypesXml(sheetNames.size()));
+        // 寫出 zip 中央目錄，不關閉底層的回應串流
+        zip.finish();
+        return cellsWritten;
+    }
+
+    private static void writeSheetStart(XmlOutput out, List<ReportColumn> columns, byte[][] columnNames) throws IOException {
+        out.ascii(XML_DECLARATION);
+        out.ascii("<worksheet xmlns=\"" + SPREADSHEETML_NS + "\"><cols>");
+        for (int i = 0; i < columns.size(); i++) {
+            out.ascii("<col min=\"");
+            out.number(i + 1);
+            out.ascii("\" max=\"");
+            out.number(i + 1);
+            out.ascii("\" width=\"");
+            out.number(columns.get(i).width());
+            out.ascii("\" customWidth=\"1\"/>");
+        }
+        out.ascii("</cols><sheetData>");
+
+        // 標題行
+        out.ascii("<row r=\"1\">");
+        for (int i = 0; i < columns.size(); i++) {
+            writeStringCell(out, columnNames[i], 1, WorkbookStyles.headerStyleIndex(), columns.get(i).header());
+        }
+        out.ascii("</row>");
+    }
+
+    // 依值的型別寫入數值、日期或文字儲存格，與 POI 寫出路徑使用相同的樣式
+    private static void writeRow(XmlOutput out, int rowNumber, Object[] rowData, byte[][] columnNames) throws IOException {
+        out.ascii("<row r=\"");
+        out.number(rowNumber);
+        out.ascii("\">");
+        for (int j = 0; j < rowData.length && j < columnNames.length; j++) {
+            Object value = rowData[j];
+            if (value instanceof Number number) {
+                writeNumberCell(out, columnNames[j], rowNumber, WorkbookStyles.dataStyleIndex(), number.doubleValue());
+            } else if (value instanceof LocalDate date) {
+                writeNumberCell(out, columnNames[j], rowNumber, WorkbookStyles.dateStyleIndex(), toExcelDate(date));
+            } else if (value != null) {
+                writeStringCell(out, columnNames[j], rowNumber, WorkbookStyles.dataStyleIndex(), value.toString());
+            } else {
+                writeCellStart(out, columnNames[j], rowNumber, WorkbookStyles.dataStyleIndex());
+                out.ascii("/>");
+            }
+        }
+        out.ascii("</row>");
+    }
+
+    // Excel 把 1900 年當成閏年（序號 60 為不存在的 1900-02-29），1900-03-01 之前的日期要少算一天
+    private static long toExcelDate(LocalDate date) {
+        long serial = date.toEpochDay() + EXCEL_EPOCH_DAY_OFFSET;
+        return serial < 61 ? serial - 1 : serial;
+    }
+
+    private static void writeCellStart(XmlOutput out, byte[] columnName, int rowNumber, short style) throws IOException {
+        out.ascii("<c r=\"");
+        out.bytes(columnName);
+        out.number(rowNumber);
+        out.ascii("\" s=\"");
+        out.number(style);
+        out.ascii("\"");
+    }
+
+    private static void writeNumberCell(XmlOutput out, byte[] columnName, int rowNumber, short style, double value)
+            throws IOException {
+        writeCellStart(out, columnName, rowNumber, style);
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            // 與 POI 相同，非有限值寫成 #NUM! 錯誤
+            out.ascii(" t=\"e\"><v>#NUM!</v></c>");
+            return;
+        }
+        out.ascii("><v>");
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.number((long) value);
+        } else {
+            out.ascii(Double.toString(value));
+        }
+        out.ascii("</v></c>");
+    }
+
+    private static void writeStringCell(XmlOutput out, byte[] columnName, int rowNumber, short style, String value)
+            throws IOException {
+        writeCellStart(out, columnName, rowNumber, style);
+        out.ascii(" t=\"inlineStr\"><is>");
+        // 前後有空白時需要 xml:space="preserve"，否則讀取端會去掉
+        boolean preserveSpace = !value.isEmpty()
+                && (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1)));
+        out.ascii(preserveSpace ? "<t xml:space=\"preserve\">" : "<t>");
+        out.text(value);
+        out.ascii("</t></is></c>");
+    }
+
+    private static void writeEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static void writeEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        writeEntry(zip, name, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String workbookXml(List<String> sheetNames) {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION)
+                .append("<workbook xmlns=\"").append(SPREADSHEETML_NS)
+                .append("\" xmlns:r=\"").append(RELATIONSHIPS_NS).append("\"><sheets>");
+        for (int i = 0; i < sheetNames.size(); i++) {
+            xml.append("<sheet name=\"").append(escape(sheetNames.get(i)))
+                    .append("\" sheetId=\"").append(i + 1)
+                    .append("\" r:id=\"rId").append(i + 1).append("\"/>");
+        }
+        return xml.append("</sheets></workbook>").toString();
+    }
+
+    // rId1..N 為工作表，rId(N+1) 為 styles.xml
+    private static String workbookRelationshipsXml(int sheetCount) {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION)
+                .append("<Relationships xmlns=\"").append(PACKAGE_RELATIONSHIPS_NS).append("\">");
+        for (int i = 1; i <= sheetCount; i++) {
+            xml.append("<Relationship Id=\"rId").append(i)
+                    .append("\" Type=\"").append(RELATIONSHIPS_NS).append("/worksheet")
+                    .append("\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+        }
+        xml.append("<Relationship Id=\"rId").append(sheetCount + 1)
+                .append("\" Type=\"").append(RELATIONSHIPS_NS).append("/styles")
+                .append("\" Target=\"styles.xml\"/>");
+        return xml.append("</Relationships>").toString();
+    }
+
+    private static String packageRelationshipsXml() {
+        return XML_DECLARATION
+                + "<Relationships xmlns=\"" + PACKAGE_RELATIONSHIPS_NS + "\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + RELATIONSHIPS_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>";
+    }
+
+    private static String contentTypesXml(int sheetCount) {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION)
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>")
+                .append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        for (int i = 1; i <= sheetCount; i++) {
+            xml.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        return xml.append("</Types>").toString();
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> escaped.append("&amp;");
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '"' -> escaped.append("&quot;");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    // 以固定大小的位元組緩衝區累積 XML，滿了才寫入 zip（Deflater）；文字在這裡逸出並編碼成 UTF-8
+    private static final class XmlOutput {
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final byte[] digits = new byte[20];
+        private int position;
+
+        XmlOutput(OutputStream out) {
+            this.out = out;
+        }
+
+        // 只用於標記與已知為 ASCII 的內容
+        void ascii(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                put((byte) value.charAt(i));
+            }
+        }
+
+        void bytes(byte[] value) throws IOException {
+            for (byte b : value) {
+                put(b);
+            }
+        }
+
+        void number(long value) throws IOException {
+            if (value < 0) {
+                put((byte) '-');
+                if (value == Long.MIN_VALUE) {
+                    ascii("9223372036854775808");
+                    return;
+                }
+                value = -value;
+            }
+            int count = 0;
+            do {
+                digits[count++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            while (count > 0) {
+                put(digits[--count]);
+            }
+        }
+
+        // 逸出 & < > 並略過 XML 1.0 不允許的控制字元，成對的 surrogate 編碼成 4 位元組
+        void text(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    switch (c) {
+                        case '&' -> ascii("&amp;");
+                        case '<' -> ascii("&lt;");
+                        case '>' -> ascii("&gt;");
+                        case '\t', '\n', '\r' -> put((byte) c);
+                        default -> {
+                            if (c >= 0x20) {
+                                put((byte) c);
+                            }
+                        }
+                    }
+                } else if (c < 0x800) {
+                    put((byte) (0xC0 | (c >> 6)));
+                    put((byte) (0x80 | (c & 0x3F)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    put((byte) (0xF0 | (codePoint >> 18)));
+                    put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    put((byte) (0x80 | (codePoint & 0x3F)));
+                } else if (!Character.isSurrogate(c) && c != 0xFFFE && c != 0xFFFF) {
+                    // 不成對的 surrogate 與非字元直接略過
+                    put((byte) (0xE0 | (c >> 12)));
+                    put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                    put((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            if (position > 0) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+        }
+
+        private void put(byte b) throws IOException {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = b;
+        }
+    }
+}
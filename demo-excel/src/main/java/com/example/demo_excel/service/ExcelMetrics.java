@@ -0,0 +1,92 @@
+package com.example.demo_excel.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// demo-excel 各階段的 Micrometer 指標：
+// excel.generate        產生 workbook 並寫出的耗時（report_type, engine, compression, outcome）
+// excel.generate.bytes  寫出的檔案大小（report_type, engine, compression）
+// excel.fill            填充上傳模板的耗時（compression, outcome）
+// excel.fill.bytes      收到的模板與回傳檔案大小（direction）
+// excel.cells.written   寫入的儲存格數（operation）
+// excel.report.cache.requests  報表快取查詢次數（result = hit / miss）
+// excel.export          非同步匯出工作的執行耗時，不含排隊時間（outcome）
+@Component
+public class ExcelMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void recordGenerate(Timer.Sample sample, String reportType, String engine, String compression,
+                               String outcome, long bytes, long cellsWritten) {
+        sample.stop(Timer.builder("excel.generate")
+                .description("Time to build a workbook and write it to the response")
+                .tag("report_type", reportType)
+                .tag("engine", engine)
+                .tag("compression", compression)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        DistributionSummary.builder("excel.generate.bytes")
+                .description("Size of generated workbooks")
+                .baseUnit("bytes")
+                .tag("report_type", reportType)
+                .tag("engine", engine)
+                .tag("compression", compression)
+                .register(meterRegistry)
+                .record(bytes);
+        recordCellsWritten("generate", cellsWritten);
+    }
+
+    public void recordFill(Timer.Sample sample, String compression, String outcome, long bytesIn, long bytesOut,
+                           long cellsWritten) {
+        sample.stop(Timer.builder("excel.fill")
+                .description("Time to fill an uploaded template")
+                .tag("compression", compression)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        recordFillBytes("in", bytesIn);
+        recordFillBytes("out", bytesOut);
+        recordCellsWritten("fill", cellsWritten);
+    }
+
+    public void recordExport(Timer.Sample sample, String outcome) {
+        sample.stop(Timer.builder("excel.export")
+                .description("Time to run an async export job, excluding time spent queued")
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    public void recordCacheLookup(boolean hit) {
+        Counter.builder("excel.report.cache.requests")
+                .description("Report cache lookups")
+                .tag("result", hit ? "hit" : "miss")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void recordFillBytes(String direction, long bytes) {
+        DistributionSummary.builder("excel.fill.bytes")
+                .description("Size of uploaded templates (in) and filled workbooks (out)")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
+    private void recordCellsWritten(String operation, long cells) {
+        DistributionSummary.builder("excel.cells.written")
+                .description("Cells written per workbook")
+                .baseUnit("cells")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(cells);
+    }
+}
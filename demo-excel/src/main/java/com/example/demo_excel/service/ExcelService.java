@@ -1,7 +1,21 @@
 package com.example.demo_excel.service;
 
+import com.example.demo_excel.report.ReportColumn;
+import com.example.demo_excel.report.ReportParameters;
+import com.example.demo_excel.report.ReportRowSource;
+import com.example.demo_excel.report.ReportRowSourceRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayInputStream;
@@ -9,16 +23,21 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.Deflater;
 
 @Service
 public class ExcelService {
     // 集中測試資料與標題
-    private static final String[] SAMPLE_HEADERS = {"ID", "姓名", "部門", "薪資", "入職日期", "狀態"};
-    private static final String[][] SAMPLE_DATA = {
+    static final String[] SAMPLE_HEADERS = {"ID", "姓名", "部門", "薪資", "入職日期", "狀態"};
+    static final String[][] SAMPLE_DATA = {
         {"1", "張三", "資訊部", "50000", "2023-01-15", "在職"},
         {"2", "李四", "財務部", "48000", "2022-12-01", "在職"},
         {"3", "王五", "人資部", "51000", "2021-11-20", "在職"},
@@ -31,19 +50,56 @@ public class ExcelService {
         {"10", "謝十二", "財務部", "50000", "2022-05-15", "在職"}
     };
 
+    // type=sample 使用固定的 SAMPLE_DATA，其他類型走報表資料來源
+    public static final String SAMPLE_TYPE = "sample";
+
+    // 產生引擎：xssf = 全量 XSSFWorkbook，sxssf = SXSSFWorkbook 滑動視窗串流寫入，
+    // direct = 不經過 POI 物件模型，直接輸出 OOXML 到 zip 串流（只適用平面表格報表）
+    public static final String ENGINE_XSSF = "xssf";
+    public static final String ENGINE_SXSSF = "sxssf";
+    public static final String ENGINE_DIRECT = "direct";
+
+    // 輸出 zip 的壓縮方式：store = 只存不壓縮（Deflater 等級 0，仍為 deflate 格式，讀取時幾乎不需解壓運算），
+    // fast = 等級 1，best = 等級 9，default = zlib 預設等級（6）；所有引擎、sample 與模板填充都適用
+    public static final String COMPRESSION_DEFAULT = "default";
+    public static final String COMPRESSION_STORE = "store";
+    public static final String COMPRESSION_FAST = "fast";
+    public static final String COMPRESSION_BEST = "best";
+
+    @Autowired
+    private ReportRowSourceRegistry rowSourceRegistry;
+
+    @Autowired
+    private ExcelMetrics excelMetrics;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Value("${excel.report.engine:sxssf}")
+    private String defaultReportEngine;
+
+    // SXSSF 保留在記憶體中的列數，超出的列會寫到暫存檔
+    @Value("${excel.sxssf.row-window:100}")
+    private int sxssfRowWindow;
+
+    // SXSSF 暫存檔是否以 gzip 壓縮，大量列時可大幅減少磁碟用量
+    @Value("${excel.sxssf.compress-temp-files:true}")
+    private boolean sxssfCompressTempFiles;
+
+    // 產生與模板填充輸出檔的壓縮方式，請求未指定 compression 時使用
+    @Value("${excel.compression:default}")
+    private String defaultCompression;
+
     // 共用產生 sample excel 的主邏輯
     private Workbook createSampleWorkbook() {
-        Workbook workbook = new XSSFWorkbook();
+        Workbook workbook = WorkbookStyles.newWorkbook();
         Sheet sheet = workbook.createSheet("Sample Data");
 
-        // 標題樣式
-        CellStyle headerStyle = workbook.createCellStyle();
-        Font headerFont = workbook.createFont();
-        headerFont.setBold(true);
-        headerFont.setFontHeightInPoints((short) 12);
-        headerStyle.setFont(headerFont);
-        headerStyle.setFillForegroundColor(IndexedColors.LIGHT_BLUE.getIndex());
-        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        // 標題與資料樣式在建立 workbook 時已存在
+        CellStyle headerStyle = WorkbookStyles.headerStyle(workbook);
+        CellStyle dataStyle = WorkbookStyles.dataStyle(workbook);
+
+        ColumnWidthEstimator widthEstimator = new ColumnWidthEstimator(SAMPLE_HEADERS.length);
 
         // 標題行
         Row headerRow = sheet.createRow(0);
@@ -51,15 +107,9 @@ public class ExcelService {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(SAMPLE_HEADERS[i]);
             cell.setCellStyle(headerStyle);
+            widthEstimator.trackHeader(i, SAMPLE_HEADERS[i]);
         }
 
-        // 資料樣式
-        CellStyle dataStyle = workbook.createCellStyle();
-        dataStyle.setBorderBottom(BorderStyle.THIN);
-        dataStyle.setBorderTop(BorderStyle.THIN);
-        dataStyle.setBorderRight(BorderStyle.THIN);
-        dataStyle.setBorderLeft(BorderStyle.THIN);
-
         // 寫入資料
         for (int i = 0; i < SAMPLE_DATA.length; i++) {
             Row row = sheet.createRow(i + 1);
@@ -67,21 +117,17 @@ public class ExcelService {
                 Cell cell = row.createCell(j);
                 cell.setCellValue(SAMPLE_DATA[i][j]);
                 cell.setCellStyle(dataStyle);
+                widthEstimator.track(j, SAMPLE_DATA[i][j]);
             }
         }
 
-        // 自動調整欄寬
-        for (int i = 0; i < SAMPLE_HEADERS.length; i++) {
-            sheet.autoSizeColumn(i);
-        }
+        // 依寫入時記錄的內容設定欄寬，不使用 autoSizeColumn
+        widthEstimator.applyTo(sheet);
         return workbook;
     }
 
     public byte[] generateSampleExcel() throws IOException {
-        try (Workbook workbook = createSampleWorkbook(); ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
-        }
+        return generateSampleExcelAsStream().toByteArray();
     }
 
     // 統一假資料workbook產生
@@ -90,89 +136,377 @@ public class ExcelService {
     }
 
     public byte[] generateReportExcel(String reportType) throws IOException {
-        try (Workbook workbook = getFakeWorkbook(); ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
-        }
+        return generateReportExcelAsStream(reportType).toByteArray();
     }
     
     // 真正優化的方法：使用 InputStreamResource 避免額外記憶體分配
     public InputStream generateSampleExcelAsInputStream() throws IOException {
-        try (Workbook workbook = getFakeWorkbook(); ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            workbook.write(outputStream);
-            return new ByteArrayInputStream(outputStream.toByteArray());
-        }
+        return new ByteArrayInputStream(generateSampleExcelAsStream().toByteArray());
     }
 
     // 為 ResponseEntity<Resource> 優化的方法
     public ByteArrayOutputStream generateSampleExcelAsStream() throws IOException {
-        try (Workbook workbook = getFakeWorkbook(); ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            workbook.write(outputStream);
-            return outputStream;
-        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        generateSampleExcelToStream(outputStream);
+        return outputStream;
     }
 
     // 最佳實踐：直接寫入到 OutputStream，完全避免記憶體中介
     public void generateSampleExcelToStream(OutputStream outputStream) throws IOException {
+        generateSampleExcelToStream(null, outputStream);
+    }
+
+    // compression 為 null 時使用 excel.compression 的設定
+    public void generateSampleExcelToStream(String compression, OutputStream outputStream) throws IOException {
+        String resolvedCompression = resolveCompression(compression);
+        Timer.Sample sample = excelMetrics.start();
+        ByteCountingOutputStream countingStream = new ByteCountingOutputStream(outputStream);
+        String outcome = "error";
         try (Workbook workbook = getFakeWorkbook()) {
-            workbook.write(outputStream);
+            writeWorkbook(workbook, deflateLevel(resolvedCompression), countingStream);
+            outcome = "success";
+        } finally {
+            long cellsWritten = (long) (SAMPLE_DATA.length + 1) * SAMPLE_HEADERS.length;
+            excelMetrics.recordGenerate(sample, "sample", ENGINE_XSSF, resolvedCompression, outcome,
+                    countingStream.getCount(), cellsWritten);
         }
     }
 
+    // XSSFWorkbook.write 收到 ZipArchiveOutputStream 時直接寫入其中（POI 不另外建立 zip 串流），
+    // 在這裡設定 Deflater 等級，不需要寫完再重新壓縮；POI 寫完會 finish，不關閉底層的 outputStream
+    private static void writeWorkbook(Workbook workbook, int deflateLevel, OutputStream outputStream) throws IOException {
+        ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(outputStream);
+        zipOutputStream.setLevel(deflateLevel);
+        workbook.write(zipOutputStream);
+    }
+
     public void generateReportExcelToStream(String reportType, OutputStream outputStream) throws IOException {
-        try (Workbook workbook = getFakeWorkbook()) {
-            workbook.write(outputStream);
+        generateReportExcelToStream(ReportParameters.of(reportType), null, outputStream);
+    }
+
+    public void generateReportExcelToStream(String reportType, String engine, OutputStream outputStream) throws IOException {
+        generateReportExcelToStream(ReportParameters.of(reportType), engine, outputStream);
+    }
+
+    public void generateReportExcelToStream(ReportParameters parameters, String engine, OutputStream outputStream) throws IOException {
+        generateReportExcelToStream(parameters, engine, null, outputStream);
+    }
+
+    // 依報表類型取得資料來源，逐列拉取寫入；engine / compression 為 null 時使用 excel.report.engine / excel.compression 的設定
+    public void generateReportExcelToStream(ReportParameters parameters, String engine, String compression,
+                                            OutputStream outputStream) throws IOException {
+        ReportRowSource source = rowSourceRegistry.get(parameters.reportType());
+        Iterator<Object[]> rows = source.rows(parameters);
+        String resolvedEngine = resolveEngine(engine);
+        String resolvedCompression = resolveCompression(compression);
+
+        Timer.Sample sample = excelMetrics.start();
+        ByteCountingOutputStream countingStream = new ByteCountingOutputStream(outputStream);
+        String outcome = "error";
+        long cellsWritten = 0;
+        try {
+            if (ENGINE_XSSF.equals(resolvedEngine)) {
+                try (Workbook workbook = WorkbookStyles.newWorkbook()) {
+                    cellsWritten = writeReportRows(workbook, source, rows);
+                    writeWorkbook(workbook, deflateLevel(resolvedCompression), countingStream);
+                }
+            } else if (ENGINE_DIRECT.equals(resolvedEngine)) {
+                // 直接輸出 sheet XML 到 ZipOutputStream，每個儲存格不建立 POI 物件
+                cellsWritten = new DirectXlsxWriter(deflateLevel(resolvedCompression))
+                        .write(source.sheetName(), source.columns(), rows, countingStream);
+            } else {
+                // SXSSF 串流寫入：只保留 row-window 列在記憶體，列數再多 heap 用量也固定
+                SXSSFWorkbook workbook = WorkbookStyles.newStreamingWorkbook(sxssfRowWindow, sxssfCompressTempFiles,
+                        deflateLevel(resolvedCompression));
+                try {
+                    cellsWritten = writeReportRows(workbook, source, rows);
+                    workbook.write(countingStream);
+                } finally {
+                    // 刪除 SXSSF 暫存檔
+                    workbook.dispose();
+                    workbook.close();
+                }
+            }
+            outcome = "success";
+        } finally {
+            excelMetrics.recordGenerate(sample, source.reportType(), resolvedEngine, resolvedCompression, outcome,
+                    countingStream.getCount(), cellsWritten);
+        }
+    }
+
+    // engine 為 null 時使用預設引擎，非 xssf / direct 一律視為 sxssf
+    private String resolveEngine(String engine) {
+        String requested = engine != null ? engine : defaultReportEngine;
+        if (ENGINE_XSSF.equalsIgnoreCase(requested)) {
+            return ENGINE_XSSF;
+        }
+        return ENGINE_DIRECT.equalsIgnoreCase(requested) ? ENGINE_DIRECT : ENGINE_SXSSF;
+    }
+
+    // compression 為 null 時使用預設值，無法辨識的值視為 default
+    private String resolveCompression(String compression) {
+        String requested = compression != null ? compression : defaultCompression;
+        for (String known : new String[] {COMPRESSION_STORE, COMPRESSION_FAST, COMPRESSION_BEST}) {
+            if (known.equalsIgnoreCase(requested)) {
+                return known;
+            }
+        }
+        return COMPRESSION_DEFAULT;
+    }
+
+    private static int deflateLevel(String resolvedCompression) {
+        return switch (resolvedCompression) {
+            case COMPRESSION_STORE -> Deflater.NO_COMPRESSION;
+            case COMPRESSION_FAST -> Deflater.BEST_SPEED;
+            case COMPRESSION_BEST -> Deflater.BEST_COMPRESSION;
+            default -> Deflater.DEFAULT_COMPRESSION;
+        };
+    }
+
+    // 查詢報表快取：type=sample 為固定的 SAMPLE_DATA，只依 compression 區分；其他類型依資料來源、rows、engine 與 compression 區分
+    public CachedReport findCachedReport(String type, int rows, String engine, String compression) {
+        CachedReport cached = reportCache.get(reportCacheKey(type, rows, engine, compression));
+        excelMetrics.recordCacheLookup(cached != null);
+        return cached;
+    }
+
+    // 命中快取時直接回傳；未命中時產生到記憶體並放入快取（超過單筆上限則不快取）
+    public CachedReport getReport(String type, int rows, String engine, String compression) throws IOException {
+        CachedReport cached = findCachedReport(type, rows, engine, compression);
+        if (cached != null) {
+            return cached;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeReport(type, rows, engine, compression, outputStream);
+        return reportCache.put(reportCacheKey(type, rows, engine, compression), outputStream.toByteArray());
+    }
+
+    // 串流產生：一邊寫入 outputStream 一邊保留內容，完整寫出後放入快取，首次請求不需等待整份檔案產生
+    public void generateAndCacheReport(String type, int rows, String engine, String compression,
+                                       OutputStream outputStream) throws IOException {
+        ReportCache.CachingOutputStream cachingStream =
+                reportCache.openCachingStream(reportCacheKey(type, rows, engine, compression), outputStream);
+        try {
+            writeReport(type, rows, engine, compression, cachingStream);
+            cachingStream.commit();
+        } catch (IOException | RuntimeException e) {
+            cachingStream.discard();
+            throw e;
         }
     }
 
+    // 依 type 產生報表寫入 outputStream，不經過快取；非同步匯出工作直接寫到本機檔案
+    public void writeReport(String type, int rows, String engine, String compression, OutputStream outputStream) throws IOException {
+        if (SAMPLE_TYPE.equals(type)) {
+            generateSampleExcelToStream(compression, outputStream);
+        } else {
+            // 列由資料來源逐筆產生並寫出，不會先建立完整資料陣列
+            generateReportExcelToStream(toReportParameters(type, rows), engine, compression, outputStream);
+        }
+    }
+
+    // 未註冊的類型沿用 sample 資料來源，以實際資料來源的類型作為 key，避免同一份內容重複快取
+    private String reportCacheKey(String type, int rows, String engine, String compression) {
+        if (SAMPLE_TYPE.equals(type)) {
+            return SAMPLE_TYPE + ":" + resolveCompression(compression);
+        }
+        ReportParameters parameters = toReportParameters(type, rows);
+        return rowSourceRegistry.get(parameters.reportType()).reportType()
+                + ":" + parameters.rows() + ":" + parameters.seed() + ":" + resolveEngine(engine)
+                + ":" + resolveCompression(compression);
+    }
+
+    // type=report 沿用月度報表，其他類型（如 synthetic）直接交給 ReportRowSourceRegistry 查找
+    private ReportParameters toReportParameters(String type, int rows) {
+        String reportType = "report".equals(type) ? "月度" : type;
+        return new ReportParameters(reportType, rows, 0L);
+    }
+
     public ByteArrayOutputStream generateReportExcelAsStream(String reportType) throws IOException {
-        try (Workbook workbook = getFakeWorkbook(); ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            workbook.write(outputStream);
-            return outputStream;
+        return generateReportExcelAsStream(ReportParameters.of(reportType));
+    }
+
+    public ByteArrayOutputStream generateReportExcelAsStream(ReportParameters parameters) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        generateReportExcelToStream(parameters, null, outputStream);
+        return outputStream;
+    }
+
+    // 將資料來源的列逐筆寫入 workbook（需由 WorkbookStyles 建立），單一工作表超過列數上限時換到下一個工作表；回傳寫入的儲存格數（含標題）
+    private long writeReportRows(Workbook workbook, ReportRowSource source, Iterator<Object[]> rows) {
+        List<ReportColumn> columns = source.columns();
+
+        // 標題、資料、日期樣式由 WorkbookStyles 在建立 workbook 時預先加入
+        CellStyle headerStyle = WorkbookStyles.headerStyle(workbook);
+        CellStyle dataStyle = WorkbookStyles.dataStyle(workbook);
+        CellStyle dateStyle = WorkbookStyles.dateStyle(workbook);
+
+        // 寫入時估算欄寬，全量與串流兩種引擎都不需要 autoSizeColumn
+        ColumnWidthEstimator widthEstimator = new ColumnWidthEstimator(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            widthEstimator.trackHeader(i, columns.get(i).header());
+        }
+
+        int maxRowsPerSheet = SpreadsheetVersion.EXCEL2007.getMaxRows();
+        int sheetCount = 1;
+        Sheet sheet = createReportSheet(workbook, source.sheetName(), columns, headerStyle);
+        int rowIndex = 1;
+        long cellsWritten = columns.size();
+
+        while (rows.hasNext()) {
+            if (rowIndex >= maxRowsPerSheet) {
+                sheetCount++;
+                sheet = createReportSheet(workbook, source.sheetName() + " (" + sheetCount + ")", columns, headerStyle);
+                rowIndex = 1;
+                cellsWritten += columns.size();
+            }
+            Object[] rowData = rows.next();
+            Row row = sheet.createRow(rowIndex++);
+            for (int j = 0; j < rowData.length; j++) {
+                Cell cell = row.createCell(j);
+                setTypedCellValue(cell, rowData[j], dataStyle, dateStyle);
+                widthEstimator.track(j, rowData[j]);
+            }
+            cellsWritten += rowData.length;
+        }
+
+        // 欄寬不小於欄位定義的預設寬度；SXSSF 已寫出的列不影響欄寬設定
+        for (Sheet reportSheet : workbook) {
+            for (int i = 0; i < columns.size(); i++) {
+                reportSheet.setColumnWidth(i, Math.max(columns.get(i).width() * 256, widthEstimator.getColumnWidth(i)));
+            }
+        }
+        return cellsWritten;
+    }
+
+    private Sheet createReportSheet(Workbook workbook, String sheetName, List<ReportColumn> columns, CellStyle headerStyle) {
+        Sheet sheet = workbook.createSheet(sheetName);
+
+        // 先以欄位定義的字元數設定欄寬（1 字元 = 256 單位），寫完所有列後再依估算結果調整
+        for (int i = 0; i < columns.size(); i++) {
+            sheet.setColumnWidth(i, columns.get(i).width() * 256);
+        }
+
+        // 標題行
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < columns.size(); i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(columns.get(i).header());
+            cell.setCellStyle(headerStyle);
+        }
+        return sheet;
+    }
+
+    // 依值的型別寫入數值、日期或文字儲存格
+    private void setTypedCellValue(Cell cell, Object value, CellStyle dataStyle, CellStyle dateStyle) {
+        if (value instanceof Number number) {
+            cell.setCellValue(number.doubleValue());
+            cell.setCellStyle(dataStyle);
+        } else if (value instanceof LocalDate date) {
+            cell.setCellValue(date);
+            cell.setCellStyle(dateStyle);
+        } else {
+            if (value != null) {
+                cell.setCellValue(value.toString());
+            }
+            cell.setCellStyle(dataStyle);
         }
     }
     
-    // 接收 Excel 並寫入 SAMPLE_DATA
+    // 接收 Excel 並寫入 SAMPLE_DATA，回傳完整檔案；HTTP 端點使用下方的串流版本
     public byte[] fillExcelWithData(byte[] excelData) throws IOException {
-        try (InputStream inputStream = new ByteArrayInputStream(excelData);
-             Workbook workbook = new XSSFWorkbook(inputStream)) {
-            
-            // 取得第一個工作表
-            Sheet sheet = workbook.getSheetAt(0);
-            
-            // 檢查是否有標題行
-            if (sheet.getPhysicalNumberOfRows() == 0) {
-                throw new IOException("Excel file is empty");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        fillExcelWithData(new ByteArrayInputStream(excelData), excelData.length, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    // 串流填充：模板直接由上傳的 InputStream 載入，填充結果邊產生邊寫入 outputStream，不建立完整檔案的 byte[]
+    public void fillExcelWithData(InputStream templateStream, long templateSize, OutputStream outputStream) throws IOException {
+        fillExcelWithData(templateStream, templateSize, null, outputStream);
+    }
+
+    public void fillExcelWithData(InputStream templateStream, long templateSize, String compression,
+                                  OutputStream outputStream) throws IOException {
+        String resolvedCompression = resolveCompression(compression);
+        Timer.Sample sample = excelMetrics.start();
+        ByteCountingOutputStream countingStream = new ByteCountingOutputStream(outputStream);
+        String outcome = "error";
+        try (XSSFWorkbook template = new XSSFWorkbook(templateStream)) {
+            fillTemplate(template, resolvedCompression, countingStream);
+            outcome = "success";
+        } finally {
+            recordFill(sample, resolvedCompression, outcome, templateSize, countingStream.getCount());
+        }
+    }
+
+    // 大型模板已溢寫到暫存檔：以 OPCPackage 隨機存取，zip entry 依需要讀取；
+    // SXSSF 寫出需要可寫的 package，結束時以 revert() 關閉，不回寫暫存檔
+    public void fillExcelWithData(Path templateFile, String compression, OutputStream outputStream) throws IOException {
+        String resolvedCompression = resolveCompression(compression);
+        Timer.Sample sample = excelMetrics.start();
+        ByteCountingOutputStream countingStream = new ByteCountingOutputStream(outputStream);
+        String outcome = "error";
+        try {
+            OPCPackage pkg = OPCPackage.open(templateFile.toFile(), PackageAccess.READ_WRITE);
+            try {
+                fillTemplate(new XSSFWorkbook(pkg), resolvedCompression, countingStream);
+                outcome = "success";
+            } finally {
+                pkg.revert();
             }
+        } catch (InvalidFormatException e) {
+            throw new IOException("Invalid Excel template: " + e.getMessage(), e);
+        } finally {
+            recordFill(sample, resolvedCompression, outcome, Files.size(templateFile), countingStream.getCount());
+        }
+    }
+
+    // 以模板建立 SXSSF 視窗，SAMPLE_DATA 附加在第一個工作表既有列之後（只有標題行的模板即從第二行開始）；
+    // 模板本身的列留在 XSSF，新增的列超過 row-window 即寫到暫存檔。不關閉模板，由呼叫端決定是否回寫
+    private void fillTemplate(XSSFWorkbook template, String resolvedCompression, OutputStream outputStream) throws IOException {
+        Sheet templateSheet = template.getSheetAt(0);
+        
+        // 檢查是否有標題行
+        if (templateSheet.getPhysicalNumberOfRows() == 0) {
+            throw new IOException("Excel file is empty");
+        }
+        int firstRow = templateSheet.getLastRowNum() + 1;
+        
+        SXSSFWorkbook workbook = new CompressingSXSSFWorkbook(template, sxssfRowWindow, sxssfCompressTempFiles,
+                deflateLevel(resolvedCompression));
+        try {
+            SXSSFSheet sheet = workbook.getSheetAt(0);
+            ColumnWidthEstimator widthEstimator = new ColumnWidthEstimator(SAMPLE_HEADERS.length);
             
-            // 資料樣式
-            CellStyle dataStyle = workbook.createCellStyle();
-            dataStyle.setBorderBottom(BorderStyle.THIN);
-            dataStyle.setBorderTop(BorderStyle.THIN);
-            dataStyle.setBorderRight(BorderStyle.THIN);
-            dataStyle.setBorderLeft(BorderStyle.THIN);
+            // 資料樣式：模板來自上傳檔案，樣式需加入模板自己的樣式表
+            CellStyle dataStyle = WorkbookStyles.createDataStyle(workbook);
             
-            // 寫入 SAMPLE_DATA（從第二行開始）
+            // 寫入 SAMPLE_DATA
             for (int i = 0; i < SAMPLE_DATA.length; i++) {
-                Row row = sheet.createRow(i + 1);
+                Row row = sheet.createRow(firstRow + i);
                 for (int j = 0; j < SAMPLE_DATA[i].length; j++) {
                     Cell cell = row.createCell(j);
                     cell.setCellValue(SAMPLE_DATA[i][j]);
                     cell.setCellStyle(dataStyle);
+                    widthEstimator.track(j, SAMPLE_DATA[i][j]);
                 }
             }
             
-            // 自動調整欄寬
+            // 調整欄寬：只估算新增的列，模板原本較寬的設定（例如依標題列調整過的寬度）保留
             for (int i = 0; i < SAMPLE_HEADERS.length; i++) {
-                sheet.autoSizeColumn(i);
+                sheet.setColumnWidth(i, Math.max(sheet.getColumnWidth(i), widthEstimator.getColumnWidth(i)));
             }
             
-            // 輸出為 byte array
-            try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-                workbook.write(outputStream);
-                return outputStream.toByteArray();
-            }
+            workbook.write(outputStream);
+        } finally {
+            // 只刪除 SXSSF 暫存檔；close() 會連帶關閉模板 workbook
+            workbook.dispose();
         }
     }
+
+    private void recordFill(Timer.Sample sample, String compression, String outcome, long bytesIn, long bytesOut) {
+        excelMetrics.recordFill(sample, compression, outcome, bytesIn, bytesOut,
+                "success".equals(outcome) ? (long) SAMPLE_DATA.length * SAMPLE_HEADERS.length : 0);
+    }
     
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.example.demo_excel.service;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+// 非同步匯出工作：queued → running → completed / failed / cancelled；
+// 完成的檔案內容不再變動，以 id 與大小組成的 ETag 作為 If-Range 的驗證值
+public final class ExportJob {
+
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_COMPLETED = "completed";
+    public static final String STATUS_FAILED = "failed";
+    public static final String STATUS_CANCELLED = "cancelled";
+
+    private final String id;
+    private final String type;
+    private final int rows;
+    private final String engine;
+    private final String compression;
+    private final String priority;
+    private final int priorityRank;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private volatile String status = STATUS_QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile long finishedAtNanos;
+    private volatile Path file;
+    private volatile long size;
+    private volatile String error;
+
+    ExportJob(String id, String type, int rows, String engine, String compression, String priority, int priorityRank) {
+        this.id = id;
+        this.type = type;
+        this.rows = rows;
+        this.engine = engine;
+        this.compression = compression;
+        this.priority = priority;
+        this.priorityRank = priorityRank;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public boolean isCompleted() {
+        return STATUS_COMPLETED.equals(status);
+    }
+
+    public boolean isFinished() {
+        return STATUS_COMPLETED.equals(status) || STATUS_FAILED.equals(status) || STATUS_CANCELLED.equals(status);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public String getETag() {
+        return "\"" + id + "-" + size + "\"";
+    }
+
+    String getType() {
+        return type;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    String getEngine() {
+        return engine;
+    }
+
+    String getCompression() {
+        return compression;
+    }
+
+    int getPriorityRank() {
+        return priorityRank;
+    }
+
+    long getFinishedAtNanos() {
+        return finishedAtNanos;
+    }
+
+    // 狀態轉換只由 ExportJobService 呼叫
+    synchronized boolean start() {
+        if (!STATUS_QUEUED.equals(status)) {
+            return false;
+        }
+        status = STATUS_RUNNING;
+        startedAt = LocalDateTime.now();
+        return true;
+    }
+
+    // 執行期間被取消時回傳 false，由呼叫端刪除產生的檔案
+    synchronized boolean complete(Path file, long size) {
+        if (!STATUS_RUNNING.equals(status)) {
+            return false;
+        }
+        this.file = file;
+        this.size = size;
+        finish(STATUS_COMPLETED);
+        return true;
+    }
+
+    synchronized void fail(String error) {
+        if (!STATUS_RUNNING.equals(status)) {
+            return;
+        }
+        this.error = error;
+        finish(STATUS_FAILED);
+    }
+
+    // 已完成的工作取消時回傳 false，由呼叫端刪除檔案
+    synchronized boolean cancel() {
+        if (isFinished()) {
+            return false;
+        }
+        finish(STATUS_CANCELLED);
+        return true;
+    }
+
+    private void finish(String finalStatus) {
+        status = finalStatus;
+        finishedAt = LocalDateTime.now();
+        finishedAtNanos = System.nanoTime();
+    }
+
+    public Map<String, Object> toStatusMap() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("job_id", id);
+        result.put("type", type);
+        result.put("rows", rows);
+        result.put("engine", engine);
+        result.put("compression", compression);
+        result.put("priority", priority);
+        result.put("status", status);
+        result.put("created_at", createdAt);
+        if (startedAt != null) {
+            result.put("started_at", startedAt);
+        }
+        if (finishedAt != null) {
+            result.put("finished_at", finishedAt);
+        }
+        if (isCompleted()) {
+            result.put("file_size", size);
+            result.put("etag", getETag());
+            result.put("download_url", "/excel/exports/" + id + "/file");
+        }
+        if (error != null) {
+            result.put("error", error);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.demo_excel.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 非同步報表匯出：工作在固定大小的 worker pool 依優先權執行（high > normal > low，同優先權先進先出），
+// 等待中的工作數以 queue-capacity 為上限；報表寫到本機目錄，完成後由下載端點以 Range 輸出，
+// 連線中斷時用戶端以 Range 續傳，不需要重新產生。完成超過 retention 的工作與檔案在下次提交或查詢時清除，
+// 檔案經由 FileLeases 刪除，下載中的檔案等下載歸還租用後才刪除
+@Service
+public class ExportJobService {
+
+    public static final String PRIORITY_HIGH = "high";
+    public static final String PRIORITY_NORMAL = "normal";
+    public static final String PRIORITY_LOW = "low";
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ExcelService excelService;
+
+    @Autowired
+    private ExcelMetrics excelMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private FileLeases fileLeases;
+
+    @Value("${excel.export.pool-size:2}")
+    private int poolSize;
+
+    @Value("${excel.export.queue-capacity:100}")
+    private int queueCapacity;
+
+    // 未設定時使用系統暫存目錄
+    @Value("${excel.export.directory:}")
+    private String directory;
+
+    @Value("${excel.export.retention:1h}")
+    private Duration retention;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    // 尚未開始執行的工作，取消時從 worker pool 的佇列移除
+    private final Map<String, ExportTask> pendingTasks = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private ThreadPoolExecutor executor;
+    private Path exportDirectory;
+
+    @PostConstruct
+    void init() throws IOException {
+        exportDirectory = directory.isBlank()
+                ? Files.createTempDirectory("demo-excel-exports-")
+                : Files.createDirectories(Path.of(directory));
+        AtomicInteger threadNumber = new AtomicInteger();
+        // PriorityBlockingQueue 依 ExportTask 的順序取出；佇列本身無上限，由 queued 計數限制
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "excel-export-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        // executor.pool.size、executor.active、executor.queued 等指標
+        new ExecutorServiceMetrics(executor, "excel.export", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        for (ExportJob job : jobs.values()) {
+            fileLeases.delete(job.getFile());
+        }
+        jobs.clear();
+    }
+
+    // 佇列已滿時拋出 RejectedExecutionException，由 controller 回應 503
+    public ExportJob submit(String type, int rows, String engine, String compression, String priority) {
+        purgeExpired();
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            throw new RejectedExecutionException("Export queue is full (" + queueCapacity + " jobs waiting)");
+        }
+        String priorityName = normalizePriority(priority);
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), type, rows, engine, compression, priorityName,
+                priorityRank(priorityName));
+        ExportTask task = new ExportTask(job, sequence.getAndIncrement());
+        jobs.put(job.getId(), job);
+        pendingTasks.put(job.getId(), task);
+        executor.execute(task);
+        return job;
+    }
+
+    public ExportJob getJob(String id) {
+        purgeExpired();
+        return jobs.get(id);
+    }
+
+    // 取消並移除工作：等待中的工作從佇列移除，執行中的工作寫完後丟棄檔案，已完成的工作刪除檔案
+    public ExportJob cancel(String id) {
+        ExportJob job = jobs.remove(id);
+        if (job == null) {
+            return null;
+        }
+        ExportTask task = pendingTasks.remove(id);
+        if (task != null && executor.remove(task)) {
+            queued.decrementAndGet();
+        }
+        if (!job.cancel()) {
+            fileLeases.delete(job.getFile());
+        }
+        return job;
+    }
+
+    private void run(ExportJob job) {
+        pendingTasks.remove(job.getId());
+        queued.decrementAndGet();
+        if (!job.start()) {
+            return;
+        }
+        Timer.Sample sample = excelMetrics.start();
+        Path partFile = exportDirectory.resolve(job.getId() + ".xlsx.part");
+        Path file = exportDirectory.resolve(job.getId() + ".xlsx");
+        String outcome = "error";
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partFile), COPY_BUFFER_SIZE)) {
+                excelService.writeReport(job.getType(), job.getRows(), job.getEngine(), job.getCompression(), out);
+            }
+            // 寫完才改為正式檔名，下載端點不會讀到寫到一半的檔案
+            Files.move(partFile, file, StandardCopyOption.ATOMIC_MOVE);
+            if (job.complete(file, Files.size(file))) {
+                outcome = "success";
+            } else {
+                // 執行期間已被取消
+                outcome = "cancelled";
+                deleteQuietly(file);
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(partFile);
+            job.fail(e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            excelMetrics.recordExport(sample, outcome);
+        }
+    }
+
+    private void purgeExpired() {
+        long now = System.nanoTime();
+        Iterator<ExportJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            ExportJob job = iterator.next();
+            if (job.isFinished() && now - job.getFinishedAtNanos() > retention.toNanos()) {
+                iterator.remove();
+                fileLeases.delete(job.getFile());
+            }
+        }
+    }
+
+    // 未知的值視為 normal
+    private static String normalizePriority(String priority) {
+        if (PRIORITY_HIGH.equalsIgnoreCase(priority)) {
+            return PRIORITY_HIGH;
+        }
+        return PRIORITY_LOW.equalsIgnoreCase(priority) ? PRIORITY_LOW : PRIORITY_NORMAL;
+    }
+
+    private static int priorityRank(String priority) {
+        return switch (priority) {
+            case PRIORITY_HIGH -> 2;
+            case PRIORITY_LOW -> 0;
+            default -> 1;
+        };
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // 暫存目錄會在下次啟動時重新建立
+        }
+    }
+
+    // worker pool 佇列中的工作：優先權高者先執行，同優先權依提交順序
+    private final class ExportTask implements Runnable, Comparable<ExportTask> {
+
+        private final ExportJob job;
+        private final long sequence;
+
+        ExportTask(ExportJob job, long sequence) {
+            this.job = job;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            ExportJobService.this.run(job);
+        }
+
+        @Override
+        public int compareTo(ExportTask other) {
+            int byPriority = Integer.compare(other.job.getPriorityRank(), job.getPriorityRank());
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo_excel.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 下載中檔案的參考計數：報表快取淘汰、匯出工作過期或取消時經由 delete() 刪除檔案，
+// 仍有下載持有租用時延後到最後一個租用歸還才刪除。已要求刪除的檔案不再出租，下載端點視為不存在
+@Component
+public class FileLeases {
+
+    private final Map<Path, Lease> leases = new HashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "file-lease-release");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final class Lease {
+        private int count;
+        private boolean deletePending;
+    }
+
+    // 取得租用；檔案不存在或已要求刪除時回傳 false
+    public synchronized boolean acquire(Path file) {
+        Lease lease = leases.get(file);
+        if (lease == null) {
+            if (!Files.exists(file)) {
+                return false;
+            }
+            lease = new Lease();
+            leases.put(file, lease);
+        } else if (lease.deletePending) {
+            return false;
+        }
+        lease.count++;
+        return true;
+    }
+
+    public synchronized void release(Path file) {
+        Lease lease = leases.get(file);
+        if (lease == null || --lease.count > 0) {
+            return;
+        }
+        leases.remove(file);
+        if (lease.deletePending) {
+            deleteQuietly(file);
+        }
+    }
+
+    // 無法得知何時用完的租用（例如交給 Tomcat sendfile 的檔案）在 delay 後歸還
+    public void releaseAfter(Path file, Duration delay) {
+        scheduler.schedule(() -> release(file), delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // 沒有租用時立即刪除，否則等最後一個租用歸還
+    public synchronized void delete(Path file) {
+        if (file == null) {
+            return;
+        }
+        Lease lease = leases.get(file);
+        if (lease != null) {
+            lease.deletePending = true;
+        } else {
+            deleteQuietly(file);
+        }
+    }
+
+    // 依賴此元件的快取與匯出服務先關閉，尚在租用中而延後的刪除在這裡執行
+    @PreDestroy
+    synchronized void shutdown() {
+        scheduler.shutdownNow();
+        leases.forEach((file, lease) -> {
+            if (lease.deletePending) {
+                deleteQuietly(file);
+            }
+        });
+        leases.clear();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // 暫存目錄會在下次啟動時重新建立
+        }
+    }
+}
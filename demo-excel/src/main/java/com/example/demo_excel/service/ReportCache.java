@@ -0,0 +1,261 @@
+package com.example.demo_excel.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 已產生報表的 LRU 快取，以總位元組數為上限；內容存在 heap 或本機暫存檔（storage=file）
+@Component
+public class ReportCache {
+
+    public static final String STORAGE_MEMORY = "memory";
+    public static final String STORAGE_FILE = "file";
+
+    @Value("${excel.report.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${excel.report.cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    @Value("${excel.report.cache.max-entry-bytes:33554432}")
+    private long maxEntryBytes;
+
+    @Value("${excel.report.cache.storage:memory}")
+    private String storage;
+
+    // 未設定時使用系統暫存目錄
+    @Value("${excel.report.cache.directory:}")
+    private String directory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private FileLeases fileLeases;
+
+    // accessOrder = true：get 會把項目移到最後，迭代順序即為最久未使用到最近使用
+    private final LinkedHashMap<String, CachedReport> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private Path cacheDirectory;
+
+    @PostConstruct
+    void init() throws IOException {
+        if (enabled && STORAGE_FILE.equalsIgnoreCase(storage)) {
+            cacheDirectory = directory.isBlank()
+                    ? Files.createTempDirectory("demo-excel-report-cache-")
+                    : Files.createDirectories(Path.of(directory));
+        }
+        Gauge.builder("excel.report.cache.size", this, ReportCache::totalBytes)
+                .description("Bytes held by the report cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("excel.report.cache.entries", this, ReportCache::entryCount)
+                .description("Reports held by the report cache")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    synchronized void clear() {
+        for (CachedReport entry : entries.values()) {
+            release(entry);
+        }
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized CachedReport get(String key) {
+        return enabled ? entries.get(key) : null;
+    }
+
+    // 放入已在記憶體中的報表；超過單筆上限或快取停用時回傳不帶 ETag 的結果，不放入快取
+    public CachedReport put(String key, byte[] data) throws IOException {
+        if (!enabled || data.length > maxEntryBytes) {
+            return new CachedReport(data, null, data.length, null);
+        }
+        String eTag = toETag(newDigest().digest(data));
+        if (cacheDirectory == null) {
+            return insert(key, new CachedReport(data, null, data.length, eTag));
+        }
+        Path file = Files.createTempFile(cacheDirectory, "report-", ".xlsx");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return insert(key, new CachedReport(null, file, data.length, eTag));
+    }
+
+    // 寫入 target 的同時保留一份內容，commit() 後放入快取；超過單筆上限時停止保留，只轉寫到 target
+    public CachingOutputStream openCachingStream(String key, OutputStream target) throws IOException {
+        return new CachingOutputStream(key, target);
+    }
+
+    private synchronized CachedReport insert(String key, CachedReport entry) {
+        CachedReport previous = entries.put(key, entry);
+        if (previous != null) {
+            totalBytes -= previous.size();
+            release(previous);
+        }
+        totalBytes += entry.size();
+
+        // 淘汰最久未使用的項目直到低於容量上限，剛放入的項目不淘汰
+        List<CachedReport> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, CachedReport>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            CachedReport eldest = iterator.next().getValue();
+            if (eldest == entry) {
+                break;
+            }
+            iterator.remove();
+            totalBytes -= eldest.size();
+            evicted.add(eldest);
+        }
+        evicted.forEach(this::release);
+        return entry;
+    }
+
+    // 正在輸出的檔案由下載持有租用（FileLeases），淘汰或取代時延後到租用歸還才刪除
+    private void release(CachedReport entry) {
+        if (entry.isFileBacked()) {
+            fileLeases.delete(entry.getFile());
+        }
+    }
+
+    private synchronized double totalBytes() {
+        return totalBytes;
+    }
+
+    private synchronized double entryCount() {
+        return entries.size();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toETag(byte[] digest) {
+        return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+    }
+
+    public final class CachingOutputStream extends OutputStream {
+
+        private final String key;
+        private final OutputStream target;
+        private final MessageDigest digest = newDigest();
+        private ByteArrayOutputStream memory;
+        private Path file;
+        private OutputStream fileStream;
+        private long size;
+        private boolean capturing;
+
+        private CachingOutputStream(String key, OutputStream target) throws IOException {
+            this.key = key;
+            this.target = target;
+            this.capturing = enabled;
+            if (!capturing) {
+                return;
+            }
+            if (cacheDirectory != null) {
+                file = Files.createTempFile(cacheDirectory, "report-", ".xlsx");
+                fileStream = new BufferedOutputStream(Files.newOutputStream(file));
+            } else {
+                memory = new ByteArrayOutputStream();
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+            if (!capturing) {
+                return;
+            }
+            size += len;
+            if (size > maxEntryBytes) {
+                discard();
+                return;
+            }
+            digest.update(b, off, len);
+            if (fileStream != null) {
+                fileStream.write(b, off, len);
+            } else {
+                memory.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        // 不關閉 target，由呼叫端負責
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        // 內容完整寫出後放入快取；已超過上限或停用時不做任何事
+        public void commit() throws IOException {
+            if (!capturing) {
+                return;
+            }
+            capturing = false;
+            String eTag = toETag(digest.digest());
+            if (fileStream != null) {
+                fileStream.close();
+                insert(key, new CachedReport(null, file, size, eTag));
+            } else {
+                insert(key, new CachedReport(memory.toByteArray(), null, size, eTag));
+            }
+        }
+
+        // 產生失敗或超過單筆上限時丟棄保留的內容
+        public void discard() throws IOException {
+            capturing = false;
+            memory = null;
+            if (fileStream != null) {
+                fileStream.close();
+                fileStream = null;
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,546 @@
+package com.example.demo_excel.service;
+
+import org.apache.poi.ooxml.POIXMLDocumentPart;
+import org.apache.poi.ooxml.POIXMLRelation;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Color;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.FontCharset;
+import org.apache.poi.ss.usermodel.FontFamily;
+import org.apache.poi.ss.usermodel.FontScheme;
+import org.apache.poi.ss.usermodel.FontUnderline;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.ReadingOrder;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.model.ThemesTable;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFFactory;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.usermodel.extensions.XSSFCellBorder;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTXf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+// 產生報表共用的儲存格樣式（標題、框線、日期）：定義集中在 createStyles，啟動時先建立一次並序列化成 styles.xml。
+// newWorkbook() 建立的 workbook 在建立時就帶有這三個樣式（索引固定，以 headerStyle 等方法取得），
+// 寫出時若樣式表沒有新增字型、樣式或格式，直接輸出預先序列化的 styles.xml，不再經過 XmlBeans 序列化。
+// 共用樣式與字型為唯讀（修改會丟出 UnsupportedOperationException），需要不同樣式時另外 createCellStyle
+// （該 workbook 的樣式表改回一般序列化）
+final class WorkbookStyles {
+
+    private static final XSSFFactory FACTORY = new PrerenderedStylesFactory();
+
+    private static final short HEADER_STYLE_INDEX;
+    private static final short DATA_STYLE_INDEX;
+    private static final short DATE_STYLE_INDEX;
+    private static final byte[] STYLES_XML;
+
+    static {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            CellStyle[] styles = createStyles(workbook);
+            HEADER_STYLE_INDEX = styles[0].getIndex();
+            DATA_STYLE_INDEX = styles[1].getIndex();
+            DATE_STYLE_INDEX = styles[2].getIndex();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            workbook.getStylesSource().writeTo(outputStream);
+            STYLES_XML = outputStream.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private WorkbookStyles() {
+    }
+
+    // 已帶有共用樣式的 XSSFWorkbook
+    static XSSFWorkbook newWorkbook() {
+        XSSFWorkbook workbook = new XSSFWorkbook(FACTORY);
+        createStyles(workbook);
+        ((PrerenderedStylesTable) workbook.getStylesSource()).markPrerendered();
+        return workbook;
+    }
+
+    // 以 newWorkbook() 為基礎的 SXSSF 串流 workbook，輸出的 zip 以 deflateLevel 壓縮
+    static SXSSFWorkbook newStreamingWorkbook(int rowAccessWindowSize, boolean compressTempFiles, int deflateLevel) {
+        return new CompressingSXSSFWorkbook(newWorkbook(), rowAccessWindowSize, compressTempFiles, deflateLevel);
+    }
+
+    static CellStyle headerStyle(Workbook workbook) {
+        return workbook.getCellStyleAt(HEADER_STYLE_INDEX);
+    }
+
+    static CellStyle dataStyle(Workbook workbook) {
+        return workbook.getCellStyleAt(DATA_STYLE_INDEX);
+    }
+
+    static CellStyle dateStyle(Workbook workbook) {
+        return workbook.getCellStyleAt(DATE_STYLE_INDEX);
+    }
+
+    // 不經過 POI 物件模型直接輸出 OOXML 時使用：styles.xml 內容與三個樣式的索引（內容不可修改）
+    static byte[] stylesXml() {
+        return STYLES_XML;
+    }
+
+    static short headerStyleIndex() {
+        return HEADER_STYLE_INDEX;
+    }
+
+    static short dataStyleIndex() {
+        return DATA_STYLE_INDEX;
+    }
+
+    static short dateStyleIndex() {
+        return DATE_STYLE_INDEX;
+    }
+
+    // 在既有 workbook（例如上傳的模板）中新增資料樣式，定義與共用的資料樣式相同
+    static CellStyle createDataStyle(Workbook workbook) {
+        CellStyle dataStyle = workbook.createCellStyle();
+        dataStyle.setBorderBottom(BorderStyle.THIN);
+        dataStyle.setBorderTop(BorderStyle.THIN);
+        dataStyle.setBorderRight(BorderStyle.THIN);
+        dataStyle.setBorderLeft(BorderStyle.THIN);
+        return dataStyle;
+    }
+
+    // 建立順序決定樣式索引，預先序列化與每個 workbook 都經過同一段程式，內容完全一致
+    private static CellStyle[] createStyles(Workbook workbook) {
+        // 標題樣式
+        CellStyle headerStyle = workbook.createCellStyle();
+        Font headerFont = workbook.createFont();
+        headerFont.setBold(true);
+        headerFont.setFontHeightInPoints((short) 12);
+        headerStyle.setFont(headerFont);
+        headerStyle.setFillForegroundColor(IndexedColors.LIGHT_BLUE.getIndex());
+        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+        // 資料樣式
+        CellStyle dataStyle = createDataStyle(workbook);
+
+        // 日期樣式
+        CellStyle dateStyle = workbook.createCellStyle();
+        dateStyle.cloneStyleFrom(dataStyle);
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+
+        return new CellStyle[] {headerStyle, dataStyle, dateStyle};
+    }
+
+    // 新建 workbook 時以 PrerenderedStylesTable 取代預設的樣式表，其餘 part 照常建立
+    private static final class PrerenderedStylesFactory extends XSSFFactory {
+
+        @Override
+        public POIXMLDocumentPart newDocumentPart(POIXMLRelation descriptor) {
+            if (descriptor == XSSFRelation.STYLES) {
+                return new PrerenderedStylesTable();
+            }
+            return super.newDocumentPart(descriptor);
+        }
+    }
+
+    // 記錄共用樣式建立後的各表大小（條件格式的 dxf 也算在內），寫出時大小都沒變就輸出 STYLES_XML。
+    // 大小不變的就地修改無法由大小察覺：共用的樣式與字型以唯讀物件交出，樣式表本身的取代、移除操作則標記為已修改。
+    // 直接操作 CT 物件（getCellXfAt、getCTStylesheet 等低階 API）不在保護範圍內
+    private static final class PrerenderedStylesTable extends StylesTable {
+
+        private int fonts = -1;
+        private int fills;
+        private int borders;
+        private int cellStyles;
+        private int dataFormats;
+        private int differentialFormats;
+        private boolean modified;
+
+        void markPrerendered() {
+            fonts = getFonts().size();
+            fills = getFills().size();
+            borders = getBorders().size();
+            cellStyles = getNumCellStyles();
+            dataFormats = getNumDataFormats();
+            differentialFormats = _getDXfsSize();
+        }
+
+        private boolean isPrerendered() {
+            return !modified
+                    && fonts == getFonts().size()
+                    && fills == getFills().size()
+                    && borders == getBorders().size()
+                    && cellStyles == getNumCellStyles()
+                    && dataFormats == getNumDataFormats()
+                    && differentialFormats == _getDXfsSize();
+        }
+
+        private boolean isSharedFont(int idx) {
+            return idx >= 0 && idx < fonts;
+        }
+
+        private boolean isSharedStyle(int idx) {
+            return fonts >= 0 && idx >= 0 && idx < cellStyles;
+        }
+
+        @Override
+        public XSSFFont getFontAt(int idx) {
+            XSSFFont font = super.getFontAt(idx);
+            return isSharedFont(idx) ? new SharedFont(font, this) : font;
+        }
+
+        @Override
+        public XSSFFont findFont(boolean bold, short color, short fontHeight, String name, boolean italic,
+                boolean strikeout, short typeOffset, byte underline) {
+            XSSFFont font = super.findFont(bold, color, fontHeight, name, italic, strikeout, typeOffset, underline);
+            return font != null && isSharedFont(font.getIndex()) ? new SharedFont(font, this) : font;
+        }
+
+        @Override
+        public XSSFFont findFont(boolean bold, Color color, short fontHeight, String name, boolean italic,
+                boolean strikeout, short typeOffset, byte underline) {
+            XSSFFont font = super.findFont(bold, color, fontHeight, name, italic, strikeout, typeOffset, underline);
+            return font != null && isSharedFont(font.getIndex()) ? new SharedFont(font, this) : font;
+        }
+
+        @Override
+        public XSSFCellStyle getStyleAt(int idx) {
+            if (!isSharedStyle(idx)) {
+                return super.getStyleAt(idx);
+            }
+            long styleXfId = getCellXfAt(idx).getXfId();
+            return new SharedCellStyle(idx, styleXfId > 0 ? (int) styleXfId : 0, this, getTheme());
+        }
+
+        @Override
+        public void replaceCellXfAt(int idx, CTXf cellXf) {
+            modified = true;
+            super.replaceCellXfAt(idx, cellXf);
+        }
+
+        @Override
+        public void putNumberFormat(short index, String fmt) {
+            modified = true;
+            super.putNumberFormat(index, fmt);
+        }
+
+        @Override
+        public boolean removeNumberFormat(short index) {
+            modified = true;
+            return super.removeNumberFormat(index);
+        }
+
+        @Override
+        public boolean removeNumberFormat(String fmt) {
+            modified = true;
+            return super.removeNumberFormat(fmt);
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            if (isPrerendered()) {
+                out.write(STYLES_XML);
+            } else {
+                super.writeTo(out);
+            }
+        }
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("共用樣式為唯讀，請另外 createCellStyle / createFont");
+    }
+
+    // 共用的儲存格樣式：讀取照常，所有修改方法丟出例外（getFont 取得的字型同樣唯讀）
+    private static final class SharedCellStyle extends XSSFCellStyle {
+
+        SharedCellStyle(int cellXfId, int cellStyleXfId, StylesTable stylesSource, ThemesTable theme) {
+            super(cellXfId, cellStyleXfId, stylesSource, theme);
+        }
+
+        @Override
+        public void cloneStyleFrom(CellStyle source) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setAlignment(HorizontalAlignment align) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBorderBottom(BorderStyle border) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBorderLeft(BorderStyle border) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBorderRight(BorderStyle border) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBorderTop(BorderStyle border) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBottomBorderColor(short color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBottomBorderColor(XSSFColor color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setDataFormat(short fmt) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setDataFormat(int fmt) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFillBackgroundColor(XSSFColor color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFillBackgroundColor(Color color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFillBackgroundColor(short bg) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFillForegroundColor(XSSFColor color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFillForegroundColor(Color color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFillForegroundColor(short fg) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setReadingOrder(ReadingOrder order) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFillPattern(FillPatternType pattern) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFont(Font font) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setHidden(boolean hidden) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setIndention(short indent) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setLeftBorderColor(short color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setLeftBorderColor(XSSFColor color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setLocked(boolean locked) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setQuotePrefixed(boolean quotePrefix) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setRightBorderColor(short color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setRightBorderColor(XSSFColor color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setRotation(short rotation) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setTopBorderColor(short color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setTopBorderColor(XSSFColor color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setVerticalAlignment(VerticalAlignment align) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setWrapText(boolean wrapped) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBorderColor(XSSFCellBorder.BorderSide side, XSSFColor color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setShrinkToFit(boolean shrinkToFit) {
+            throw readOnly();
+        }
+    }
+
+    // 共用的字型：與樣式表中的字型共用同一個 CTFont，所有修改方法丟出例外
+    private static final class SharedFont extends XSSFFont {
+
+        SharedFont(XSSFFont font, StylesTable stylesSource) {
+            super(font.getCTFont(), font.getIndex(), stylesSource.getIndexedColors());
+            setThemesTable(stylesSource.getTheme());
+        }
+
+        @Override
+        public void setBold(boolean bold) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCharSet(byte charset) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCharSet(int charset) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCharSet(FontCharset charSet) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCharSet(org.apache.poi.common.usermodel.fonts.FontCharset charSet) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setColor(short color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setColor(XSSFColor color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFontHeight(short height) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFontHeight(double height) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFontHeightInPoints(short height) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setThemeColor(short theme) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFontName(String name) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setItalic(boolean italic) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setStrikeout(boolean strikeout) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setTypeOffset(short offset) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setUnderline(byte underline) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setUnderline(FontUnderline underline) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setScheme(FontScheme scheme) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFamily(int value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFamily(FontFamily family) {
+            throw readOnly();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.demo_excel.controller;
+
+import com.example.demo_excel.service.ExcelService;
+import com.example.demo_excel.service.ExportJob;
+import com.example.demo_excel.service.ExportJobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"excel.export.pool-size=1", "excel.export.queue-capacity=1"})
+@AutoConfigureMockMvc
+class HomeControllerExportTest {
+
+	private static final byte[] CONTENT = content(1000);
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ExportJobService exportJobService;
+
+	@MockitoBean
+	private ExcelService excelService;
+
+	// type 為 slow 的工作等待 release，佔住唯一的 worker
+	private CountDownLatch release;
+
+	@BeforeEach
+	void stubWriteReport() throws IOException {
+		release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			if (invocation.getArgument(0, String.class).equals("slow")) {
+				release.await(10, TimeUnit.SECONDS);
+			}
+			invocation.getArgument(4, OutputStream.class).write(CONTENT);
+			return null;
+		}).when(excelService).writeReport(anyString(), anyInt(), any(), any(), any());
+	}
+
+	@Test
+	void downloadsWholeFile() throws Exception {
+		ExportJob job = completedJob();
+
+		MvcResult result = stream(get("/excel/exports/{id}/file", job.getId()));
+
+		assertThat(result.getResponse().getStatus()).isEqualTo(200);
+		assertThat(result.getResponse().getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+		assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo(job.getETag());
+		assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(CONTENT);
+	}
+
+	@Test
+	void servesSingleRangeAsPartialContent() throws Exception {
+		ExportJob job = completedJob();
+
+		MvcResult result = stream(get("/excel/exports/{id}/file", job.getId())
+				.header(HttpHeaders.RANGE, "bytes=100-199")
+				.header(HttpHeaders.IF_RANGE, job.getETag()));
+
+		assertThat(result.getResponse().getStatus()).isEqualTo(206);
+		assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 100-199/1000");
+		assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(CONTENT, 100, 200));
+	}
+
+	@Test
+	void servesSuffixRange() throws Exception {
+		ExportJob job = completedJob();
+
+		MvcResult result = stream(get("/excel/exports/{id}/file", job.getId()).header(HttpHeaders.RANGE, "bytes=-10"));
+
+		assertThat(result.getResponse().getStatus()).isEqualTo(206);
+		assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 990-999/1000");
+		assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(CONTENT, 990, 1000));
+	}
+
+	@Test
+	void rejectsRangeBeyondFileSize() throws Exception {
+		ExportJob job = completedJob();
+
+		mockMvc.perform(get("/excel/exports/{id}/file", job.getId()).header(HttpHeaders.RANGE, "bytes=1000-"))
+				.andExpect(status().isRequestedRangeNotSatisfiable())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */1000"));
+	}
+
+	@Test
+	void ignoresRangeWhenIfRangeDoesNotMatch() throws Exception {
+		ExportJob job = completedJob();
+
+		MvcResult result = stream(get("/excel/exports/{id}/file", job.getId())
+				.header(HttpHeaders.RANGE, "bytes=100-199")
+				.header(HttpHeaders.IF_RANGE, "\"stale\""));
+
+		assertThat(result.getResponse().getStatus()).isEqualTo(200);
+		assertThat(result.getResponse().getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+		assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(CONTENT);
+	}
+
+	@Test
+	void servesWholeFileForMultipleRanges() throws Exception {
+		ExportJob job = completedJob();
+
+		MvcResult result = stream(get("/excel/exports/{id}/file", job.getId())
+				.header(HttpHeaders.RANGE, "bytes=0-9,20-29"));
+
+		assertThat(result.getResponse().getStatus()).isEqualTo(200);
+		assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(CONTENT);
+	}
+
+	@Test
+	void handsRangeToSendfileWhenSupported() throws Exception {
+		ExportJob job = completedJob();
+
+		MvcResult result = mockMvc.perform(get("/excel/exports/{id}/file", job.getId())
+						.requestAttr("org.apache.tomcat.sendfile.support", Boolean.TRUE)
+						.header(HttpHeaders.RANGE, "bytes=100-199"))
+				.andExpect(request().asyncNotStarted())
+				.andExpect(status().isPartialContent())
+				.andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100))
+				.andReturn();
+
+		assertThat(result.getRequest().getAttribute("org.apache.tomcat.sendfile.filename"))
+				.isEqualTo(job.getFile().toAbsolutePath().toString());
+		assertThat(result.getRequest().getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(100L);
+		// end 不包含在內
+		assertThat(result.getRequest().getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(200L);
+		assertThat(result.getResponse().getContentAsByteArray()).isEmpty();
+	}
+
+	@Test
+	void keepsLeasedFileUntilLeaseIsReturned() throws Exception {
+		ExportJob job = completedJob();
+		mockMvc.perform(get("/excel/exports/{id}/file", job.getId())
+						.requestAttr("org.apache.tomcat.sendfile.support", Boolean.TRUE))
+				.andExpect(status().isOk());
+
+		// sendfile 的租用尚未歸還，取消後檔案仍在，但不再提供下載
+		mockMvc.perform(delete("/excel/exports/{id}", job.getId())).andExpect(status().isOk());
+
+		assertThat(job.getFile()).exists();
+		mockMvc.perform(get("/excel/exports/{id}/file", job.getId())).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void reportsConflictUntilCompleted() throws Exception {
+		ExportJob job = exportJobService.submit("slow", 0, null, null, null);
+		try {
+			mockMvc.perform(get("/excel/exports/{id}/file", job.getId())).andExpect(status().isConflict());
+		} finally {
+			release.countDown();
+		}
+		awaitFinished(job);
+	}
+
+	@Test
+	void rejectsSubmissionWhenQueueIsFull() throws Exception {
+		ExportJob running = exportJobService.submit("slow", 0, null, null, null);
+		awaitStatus(running, ExportJob.STATUS_RUNNING);
+		ExportJob queued = exportJobService.submit("queued", 0, null, null, null);
+		try {
+			mockMvc.perform(post("/excel/exports").param("type", "report"))
+					.andExpect(status().isServiceUnavailable())
+					.andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+					.andExpect(jsonPath("$.status").value("rejected"));
+		} finally {
+			release.countDown();
+		}
+		awaitFinished(running, queued);
+	}
+
+	@Test
+	void cancelsQueuedJob() throws Exception {
+		ExportJob running = exportJobService.submit("slow", 0, null, null, null);
+		awaitStatus(running, ExportJob.STATUS_RUNNING);
+		String location;
+		try {
+			location = mockMvc.perform(post("/excel/exports").param("type", "report").param("priority", "high"))
+					.andExpect(status().isAccepted())
+					.andExpect(jsonPath("$.status").value(ExportJob.STATUS_QUEUED))
+					.andExpect(jsonPath("$.priority").value(ExportJobService.PRIORITY_HIGH))
+					.andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+			mockMvc.perform(delete(location))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.status").value(ExportJob.STATUS_CANCELLED));
+		} finally {
+			release.countDown();
+		}
+		mockMvc.perform(get(location)).andExpect(status().isNotFound());
+		awaitFinished(running);
+	}
+
+	@Test
+	void reportsUnknownJobAsNotFound() throws Exception {
+		mockMvc.perform(get("/excel/exports/{id}/file", "missing")).andExpect(status().isNotFound());
+		mockMvc.perform(delete("/excel/exports/{id}", "missing")).andExpect(status().isNotFound());
+	}
+
+	// 沒有 sendfile 時以 StreamingResponseBody 非同步寫出
+	private MvcResult stream(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+		MvcResult result = mockMvc.perform(requestBuilder)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		return mockMvc.perform(asyncDispatch(result)).andReturn();
+	}
+
+	private ExportJob completedJob() throws InterruptedException {
+		ExportJob job = exportJobService.submit("report", 0, null, null, null);
+		awaitFinished(job);
+		assertThat(job.isCompleted()).isTrue();
+		return job;
+	}
+
+	private static void awaitStatus(ExportJob job, String status) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!job.getStatus().equals(status)) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	private static void awaitFinished(ExportJob... jobs) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		for (ExportJob job : jobs) {
+			while (!job.isFinished()) {
+				assertThat(System.nanoTime()).isLessThan(deadline);
+				Thread.sleep(10);
+			}
+		}
+	}
+
+	private static byte[] content(int size) {
+		byte[] content = new byte[size];
+		for (int i = 0; i < size; i++) {
+			content[i] = (byte) (i * 31);
+		}
+		return content;
+	}
+}
@@ -0,0 +1,106 @@
+package com.example.demo_excel.service;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Font;
+import java.io.IOException;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnWidthEstimatorTest {
+
+	// 以 SAMPLE_DATA 對照 autoSizeColumn：估算值不應比 AWT 量測窄；
+	// 沒有安裝中日韓字型時 AWT 以缺字方框量測中文（約 1 個單位），只比對純英數欄位的上限
+	@Test
+	void matchesAutoSizeColumnOnSampleData() throws IOException {
+		boolean cjkFontAvailable = new Font(Font.SANS_SERIF, Font.PLAIN, 11).canDisplay('資');
+		ColumnWidthEstimator estimator = new ColumnWidthEstimator(ExcelService.SAMPLE_HEADERS.length);
+
+		try (XSSFWorkbook workbook = WorkbookStyles.newWorkbook()) {
+			Sheet sheet = workbook.createSheet("Sample Data");
+			Row headerRow = sheet.createRow(0);
+			for (int i = 0; i < ExcelService.SAMPLE_HEADERS.length; i++) {
+				Cell cell = headerRow.createCell(i);
+				cell.setCellValue(ExcelService.SAMPLE_HEADERS[i]);
+				cell.setCellStyle(WorkbookStyles.headerStyle(workbook));
+				estimator.trackHeader(i, ExcelService.SAMPLE_HEADERS[i]);
+			}
+			for (int i = 0; i < ExcelService.SAMPLE_DATA.length; i++) {
+				Row row = sheet.createRow(i + 1);
+				for (int j = 0; j < ExcelService.SAMPLE_DATA[i].length; j++) {
+					Cell cell = row.createCell(j);
+					cell.setCellValue(ExcelService.SAMPLE_DATA[i][j]);
+					cell.setCellStyle(WorkbookStyles.dataStyle(workbook));
+					estimator.track(j, ExcelService.SAMPLE_DATA[i][j]);
+				}
+			}
+
+			for (int i = 0; i < ExcelService.SAMPLE_HEADERS.length; i++) {
+				sheet.autoSizeColumn(i);
+				double autoSized = sheet.getColumnWidth(i) / 256.0;
+				double estimated = estimator.getColumnWidth(i) / 256.0;
+
+				assertThat(estimated)
+						.as("column %d: estimated %.2f, autoSizeColumn %.2f", i, estimated, autoSized)
+						.isGreaterThanOrEqualTo(autoSized * 0.9);
+				if (cjkFontAvailable || isWidestContentAscii(i)) {
+					assertThat(estimated)
+							.as("column %d: estimated %.2f, autoSizeColumn %.2f", i, estimated, autoSized)
+							.isLessThanOrEqualTo(autoSized * 1.3 + 1);
+				}
+			}
+		}
+	}
+
+	@Test
+	void countsCjkAsDoubleWidth() {
+		assertThat(ColumnWidthEstimator.textWidth("資訊部")).isEqualTo(6.0);
+		assertThat(ColumnWidthEstimator.textWidth("張三")).isEqualTo(2 * ColumnWidthEstimator.textWidth("00"));
+		assertThat(ColumnWidthEstimator.textWidth("ＡＢ")).isEqualTo(4.0);
+		// 補充平面的漢字（一對 surrogate）算一個全形字
+		assertThat(ColumnWidthEstimator.textWidth("𠀀")).isEqualTo(2.0);
+		// 多行取最寬的一行
+		assertThat(ColumnWidthEstimator.textWidth("資訊部\n12")).isEqualTo(6.0);
+	}
+
+	@Test
+	void estimatesTypedValuesWithoutFormatting() {
+		ColumnWidthEstimator estimator = new ColumnWidthEstimator(4);
+		estimator.track(0, 54000);
+		estimator.track(0, 9L);
+		estimator.track(1, LocalDate.of(2023, 1, 15));
+		estimator.track(2, -12.5);
+		estimator.track(3, null);
+
+		assertThat(estimator.getColumnWidth(0)).isEqualTo(6 * 256);
+		assertThat(estimator.getColumnWidth(1)).isEqualTo(10 * 256);
+		assertThat(estimator.getColumnWidth(2)).isEqualTo(Math.round(5.0 * 256));
+		assertThat(estimator.getColumnWidth(3)).isZero();
+	}
+
+	@Test
+	void capsAtExcelMaximumWidth() {
+		ColumnWidthEstimator estimator = new ColumnWidthEstimator(1);
+		estimator.track(0, "資".repeat(200));
+
+		assertThat(estimator.getColumnWidth(0)).isEqualTo(255 * 256);
+	}
+
+	// 欄寬由純英數內容決定（資料都是英數，且比中文標題寬）
+	private static boolean isWidestContentAscii(int column) {
+		double widestData = 0;
+		for (String[] row : ExcelService.SAMPLE_DATA) {
+			if (!row[column].chars().allMatch(c -> c < 0x80)) {
+				return false;
+			}
+			widestData = Math.max(widestData, ColumnWidthEstimator.textWidth(row[column]));
+		}
+		String header = ExcelService.SAMPLE_HEADERS[column];
+		return header.chars().allMatch(c -> c < 0x80) || ColumnWidthEstimator.textWidth(header) * 1.2 < widestData;
+	}
+}
@@ -0,0 +1,173 @@
+package com.example.demo_excel.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest(properties = {"excel.export.pool-size=1", "excel.export.queue-capacity=3"})
+class ExportJobServiceTest {
+
+	@Autowired
+	private ExportJobService exportJobService;
+
+	@MockitoBean
+	private ExcelService excelService;
+
+	// type 為 blocker 的工作在 started 倒數後等待 release，佔住唯一的 worker
+	private final List<String> executed = new CopyOnWriteArrayList<>();
+	private CountDownLatch started;
+	private CountDownLatch release;
+
+	@BeforeEach
+	void stubWriteReport() throws IOException {
+		started = new CountDownLatch(1);
+		release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			String type = invocation.getArgument(0);
+			executed.add(type);
+			if (type.equals("blocker")) {
+				started.countDown();
+				release.await(10, TimeUnit.SECONDS);
+			}
+			invocation.getArgument(4, OutputStream.class).write(type.getBytes());
+			return null;
+		}).when(excelService).writeReport(anyString(), anyInt(), any(), any(), any());
+	}
+
+	@AfterEach
+	void releaseWorker() {
+		release.countDown();
+	}
+
+	@Test
+	void runsQueuedJobsByPriorityThenSubmissionOrder() throws Exception {
+		ExportJob blocker = submitBlocker();
+		ExportJob low = exportJobService.submit("low", 0, null, null, ExportJobService.PRIORITY_LOW);
+		ExportJob normal = exportJobService.submit("normal", 0, null, null, "unknown");
+		ExportJob high = exportJobService.submit("high", 0, null, null, ExportJobService.PRIORITY_HIGH);
+
+		assertThat(normal.toStatusMap()).containsEntry("priority", ExportJobService.PRIORITY_NORMAL);
+		release.countDown();
+		awaitFinished(blocker, low, normal, high);
+
+		assertThat(executed).containsExactly("blocker", "high", "normal", "low");
+		assertThat(low.getStatus()).isEqualTo(ExportJob.STATUS_COMPLETED);
+		assertThat(Files.readString(high.getFile())).isEqualTo("high");
+	}
+
+	@Test
+	void rejectsSubmissionsBeyondQueueCapacity() throws Exception {
+		ExportJob blocker = submitBlocker();
+		ExportJob first = exportJobService.submit("queued", 0, null, null, null);
+		exportJobService.submit("queued", 0, null, null, null);
+		exportJobService.submit("queued", 0, null, null, null);
+
+		assertThatThrownBy(() -> exportJobService.submit("rejected", 0, null, null, null))
+				.isInstanceOf(RejectedExecutionException.class);
+
+		// 取消等待中的工作後空出位置
+		exportJobService.cancel(first.getId());
+		ExportJob accepted = exportJobService.submit("accepted", 0, null, null, null);
+		release.countDown();
+		awaitFinished(blocker, accepted);
+
+		assertThat(executed).doesNotContain("rejected").contains("accepted");
+	}
+
+	@Test
+	void cancelledQueuedJobNeverRuns() throws Exception {
+		ExportJob blocker = submitBlocker();
+		ExportJob queued = exportJobService.submit("cancelled-queued", 0, null, null, null);
+
+		ExportJob cancelled = exportJobService.cancel(queued.getId());
+		release.countDown();
+		awaitFinished(blocker);
+
+		assertThat(cancelled.getStatus()).isEqualTo(ExportJob.STATUS_CANCELLED);
+		assertThat(exportJobService.getJob(queued.getId())).isNull();
+		assertThat(exportJobService.cancel(queued.getId())).isNull();
+		assertThat(executed).doesNotContain("cancelled-queued");
+	}
+
+	@Test
+	void cancelledRunningJobDiscardsItsFile() throws Exception {
+		ExportJob blocker = submitBlocker();
+		Path exportDirectory = awaitPartFileDirectory(blocker);
+
+		exportJobService.cancel(blocker.getId());
+		release.countDown();
+		awaitNoFiles(exportDirectory, blocker);
+
+		assertThat(blocker.getStatus()).isEqualTo(ExportJob.STATUS_CANCELLED);
+		assertThat(blocker.getFile()).isNull();
+	}
+
+	@Test
+	void cancelledCompletedJobDeletesItsFile() throws Exception {
+		ExportJob job = exportJobService.submit("done", 0, null, null, null);
+		awaitFinished(job);
+		Path file = job.getFile();
+		assertThat(file).exists();
+
+		exportJobService.cancel(job.getId());
+
+		assertThat(job.getStatus()).isEqualTo(ExportJob.STATUS_COMPLETED);
+		assertThat(file).doesNotExist();
+	}
+
+	private ExportJob submitBlocker() throws InterruptedException {
+		ExportJob blocker = exportJobService.submit("blocker", 0, null, null, null);
+		assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		return blocker;
+	}
+
+	// 執行中的工作寫入 <id>.xlsx.part，由暫存檔所在目錄得知匯出目錄
+	private static Path awaitPartFileDirectory(ExportJob job) throws IOException {
+		Path tempDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+		try (var directories = Files.list(tempDirectory)) {
+			return directories
+					.filter(directory -> Files.exists(directory.resolve(job.getId() + ".xlsx.part")))
+					.findFirst()
+					.orElseThrow();
+		}
+	}
+
+	private static void awaitNoFiles(Path directory, ExportJob job) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (Files.exists(directory.resolve(job.getId() + ".xlsx.part"))
+				|| Files.exists(directory.resolve(job.getId() + ".xlsx"))) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	private static void awaitFinished(ExportJob... jobs) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		for (ExportJob job : jobs) {
+			while (!job.isFinished()) {
+				assertThat(System.nanoTime()).isLessThan(deadline);
+				Thread.sleep(10);
+			}
+		}
+	}
+}
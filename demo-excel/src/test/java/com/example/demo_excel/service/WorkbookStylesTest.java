@@ -0,0 +1,82 @@
+package com.example.demo_excel.service;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WorkbookStylesTest {
+
+	@Test
+	void writesPrerenderedStylesWhenUnchanged() throws IOException {
+		try (XSSFWorkbook workbook = WorkbookStyles.newWorkbook()) {
+			workbook.createSheet().createRow(0).createCell(0).setCellStyle(WorkbookStyles.headerStyle(workbook));
+
+			assertThat(stylesXml(workbook)).isEqualTo(WorkbookStyles.stylesXml());
+		}
+	}
+
+	@Test
+	void rejectsInPlaceChangesToSharedStyles() throws IOException {
+		try (XSSFWorkbook workbook = WorkbookStyles.newWorkbook()) {
+			assertThatThrownBy(() -> workbook.getFontAt(0).setBold(true))
+					.isInstanceOf(UnsupportedOperationException.class);
+			assertThatThrownBy(() -> workbook.getFontAt(WorkbookStyles.headerStyle(workbook).getFontIndex()).setItalic(true))
+					.isInstanceOf(UnsupportedOperationException.class);
+			assertThatThrownBy(() -> WorkbookStyles.dataStyle(workbook).setFont(workbook.getFontAt(1)))
+					.isInstanceOf(UnsupportedOperationException.class);
+			assertThatThrownBy(() -> WorkbookStyles.dateStyle(workbook).setFillForegroundColor(IndexedColors.RED.getIndex()))
+					.isInstanceOf(UnsupportedOperationException.class);
+			assertThatThrownBy(() -> workbook.getStylesSource().getStyleAt(WorkbookStyles.headerStyleIndex()).getFont().setItalic(true))
+					.isInstanceOf(UnsupportedOperationException.class);
+			assertThatThrownBy(() -> workbook.getCellStyleAt(0).setWrapText(true))
+					.isInstanceOf(UnsupportedOperationException.class);
+
+			assertThat(stylesXml(workbook)).isEqualTo(WorkbookStyles.stylesXml());
+		}
+	}
+
+	@Test
+	void serializesNormallyAfterAddingStyles() throws IOException {
+		try (XSSFWorkbook workbook = WorkbookStyles.newWorkbook()) {
+			CellStyle wrapped = workbook.createCellStyle();
+			wrapped.cloneStyleFrom(WorkbookStyles.dataStyle(workbook));
+			wrapped.setWrapText(true);
+			workbook.createSheet().createRow(0).createCell(0).setCellStyle(wrapped);
+
+			assertThat(new String(stylesXml(workbook))).contains("wrapText=\"true\"");
+		}
+	}
+
+	@Test
+	void serializesNormallyAfterReplacingAnXf() throws IOException {
+		try (XSSFWorkbook workbook = WorkbookStyles.newWorkbook()) {
+			workbook.getStylesSource().replaceCellXfAt(WorkbookStyles.dataStyleIndex(),
+					workbook.getStylesSource().getCellXfAt(WorkbookStyles.headerStyleIndex()));
+
+			assertThat(stylesXml(workbook)).isNotEqualTo(WorkbookStyles.stylesXml());
+		}
+	}
+
+	private static byte[] stylesXml(XSSFWorkbook workbook) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		workbook.write(outputStream);
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+			for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+				if (entry.getName().equals("xl/styles.xml")) {
+					return zip.readAllBytes();
+				}
+			}
+		}
+		throw new AssertionError("xl/styles.xml not found");
+	}
+}